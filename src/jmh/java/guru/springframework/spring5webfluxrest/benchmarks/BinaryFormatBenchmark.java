@@ -0,0 +1,136 @@
+package guru.springframework.spring5webfluxrest.benchmarks;
+
+import guru.springframework.spring5webfluxrest.config.CodecConfig;
+import guru.springframework.spring5webfluxrest.domain.Vendor;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.AbstractJackson2Decoder;
+import org.springframework.http.codec.json.AbstractJackson2Encoder;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Bytes on the wire and CPU per document of a list of vendors in JSON and in Smile: encoded the way the list
+ * endpoints answer, and decoded the way a streamed POST body is read, from 8 KiB chunks. Times are per vendor; the
+ * size of the payload is printed when each format is set up.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+@OperationsPerInvocation(BinaryFormatBenchmark.DOCUMENTS)
+public class BinaryFormatBenchmark {
+
+    static final int DOCUMENTS = 1000;
+
+    private static final int CHUNK_SIZE = 8192;
+    private static final ResolvableType VENDOR_TYPE = ResolvableType.forClass(Vendor.class);
+
+    @Param({MediaType.APPLICATION_JSON_VALUE, CodecConfig.APPLICATION_SMILE_VALUE})
+    private String mediaType;
+
+    private List<Vendor> vendors;
+
+    private AbstractJackson2Encoder encoder;
+
+    private AbstractJackson2Decoder decoder;
+
+    private NettyDataBufferFactory bufferFactory;
+
+    private MediaType encodedType;
+
+    private List<byte[]> chunks;
+
+    @Setup
+    public void setUp() {
+        final ObjectId categoryId = new ObjectId();
+        vendors = IntStream.range(0, DOCUMENTS)
+                .mapToObj(i -> Vendor.builder()
+                        .id(String.format("5c4e1f8e1c9d44%010x", i))
+                        .externalId("V-" + i)
+                        .firstName("First " + i)
+                        .lastName("Last " + i)
+                        .categoryId(categoryId)
+                        .version((long) i)
+                        .lastModified(Instant.ofEpochMilli(1_548_000_000_000L + i))
+                        .build())
+                .collect(Collectors.toList());
+        encodedType = MediaType.parseMediaType(mediaType);
+        final boolean smile = CodecConfig.APPLICATION_SMILE.isCompatibleWith(encodedType);
+        encoder = smile ? new Jackson2SmileEncoder() : new Jackson2JsonEncoder();
+        decoder = smile ? new Jackson2SmileDecoder() : new Jackson2JsonDecoder();
+        bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+        final byte[] payload = encode(new DefaultDataBufferFactory());
+        chunks = chunks(payload);
+        System.out.printf("%n%s: %d bytes for %d vendors, %d bytes per vendor%n", mediaType, payload.length, DOCUMENTS,
+                payload.length / DOCUMENTS);
+    }
+
+    @Benchmark
+    public long encodeVendors() {
+        return encoder.encode(Flux.fromIterable(vendors), bufferFactory, VENDOR_TYPE, encodedType, Collections.emptyMap())
+                .map(buffer -> {
+                    final int size = buffer.readableByteCount();
+                    DataBufferUtils.release(buffer);
+                    return (long) size;
+                })
+                .reduce(0L, Long::sum)
+                .block();
+    }
+
+    @Benchmark
+    public long decodeVendors() {
+        return decoder.decode(Flux.fromIterable(chunks).map(bufferFactory::wrap), VENDOR_TYPE, encodedType, Collections.emptyMap())
+                .count()
+                .block();
+    }
+
+    private byte[] encode(DefaultDataBufferFactory factory) {
+        final DataBuffer joined = factory.join(encoder.encode(Flux.fromIterable(vendors), factory, VENDOR_TYPE, encodedType, Collections.emptyMap())
+                .collectList()
+                .block());
+        final byte[] bytes = new byte[joined.readableByteCount()];
+        joined.read(bytes);
+        return bytes;
+    }
+
+    private static List<byte[]> chunks(byte[] payload) {
+        final List<byte[]> chunks = new ArrayList<>();
+        for (int offset = 0; offset < payload.length; offset += CHUNK_SIZE) {
+            chunks.add(Arrays.copyOfRange(payload, offset, Math.min(payload.length, offset + CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+}
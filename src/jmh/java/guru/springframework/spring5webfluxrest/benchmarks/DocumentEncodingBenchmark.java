@@ -0,0 +1,76 @@
+package guru.springframework.spring5webfluxrest.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import guru.springframework.spring5webfluxrest.config.PreEncodedJsonEncoder;
+import guru.springframework.spring5webfluxrest.domain.Vendor;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of encoding one cached {@code Vendor} the way {@code GET /api/v1/vendors/{id}} does, with Jackson on every
+ * request or from the bytes kept by {@link PreEncodedJsonEncoder}. Compare {@code gc.alloc.rate.norm} for the
+ * allocations per request.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DocumentEncodingBenchmark {
+
+    private static final ResolvableType VENDOR_TYPE = ResolvableType.forClass(Vendor.class);
+
+    @Param({"false", "true"})
+    private boolean preEncoded;
+
+    private Vendor vendor;
+
+    private Jackson2JsonEncoder encoder;
+
+    private NettyDataBufferFactory bufferFactory;
+
+    @Setup
+    public void setUp() {
+        vendor = Vendor.builder()
+                .id("5c4e1f8e1c9d440000a1b2c1")
+                .firstName("Mike")
+                .lastName("Wazowski")
+                .version(3L)
+                .build();
+        encoder = preEncoded
+                ? new PreEncodedJsonEncoder(new ObjectMapper(), Collections.singletonList(Vendor.class), 1, MediaType.APPLICATION_JSON)
+                : new Jackson2JsonEncoder(new ObjectMapper(), MediaType.APPLICATION_JSON);
+        bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+    }
+
+    @Benchmark
+    public int encodeVendor() {
+        return encoder.encode(Mono.just(vendor), bufferFactory, VENDOR_TYPE, MediaType.APPLICATION_JSON, Collections.emptyMap())
+                .map(buffer -> {
+                    final int bytes = buffer.readableByteCount();
+                    DataBufferUtils.release(buffer);
+                    return bytes;
+                })
+                .blockFirst();
+    }
+}
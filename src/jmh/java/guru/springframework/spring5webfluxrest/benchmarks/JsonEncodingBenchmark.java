@@ -0,0 +1,87 @@
+package guru.springframework.spring5webfluxrest.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import guru.springframework.spring5webfluxrest.config.CodecConfig;
+import guru.springframework.spring5webfluxrest.domain.Vendor;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import reactor.core.publisher.Flux;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Cost of encoding a {@code Flux<Vendor>} the way the list endpoints do, as one JSON array
+ * or as newline delimited documents, into pooled Netty buffers.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonEncodingBenchmark {
+
+    private static final ResolvableType VENDOR_TYPE = ResolvableType.forClass(Vendor.class);
+
+    @Param({"10", "1000", "100000"})
+    private int size;
+
+    @Param({MediaType.APPLICATION_JSON_VALUE, CodecConfig.APPLICATION_NDJSON_VALUE})
+    private String mediaType;
+
+    private List<Vendor> vendors;
+
+    private Jackson2JsonEncoder encoder;
+
+    private NettyDataBufferFactory bufferFactory;
+
+    private MediaType encodedType;
+
+    @Setup
+    public void setUp() {
+        vendors = IntStream.range(0, size)
+                .mapToObj(i -> Vendor.builder()
+                        .id(String.format("5c4e1f8e1c9d44%010x", i))
+                        .firstName("First " + i)
+                        .lastName("Last " + i)
+                        .build())
+                .collect(Collectors.toList());
+        encoder = new Jackson2JsonEncoder(new ObjectMapper(),
+                MediaType.APPLICATION_JSON, new MediaType("application", "*+json"), CodecConfig.APPLICATION_NDJSON);
+        encoder.setStreamingMediaTypes(Arrays.asList(MediaType.APPLICATION_STREAM_JSON, CodecConfig.APPLICATION_NDJSON));
+        bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+        encodedType = MediaType.parseMediaType(mediaType);
+    }
+
+    @Benchmark
+    public long encodeVendors() {
+        return encoder.encode(Flux.fromIterable(vendors), bufferFactory, VENDOR_TYPE, encodedType, Collections.emptyMap())
+                .map(buffer -> {
+                    final int bytes = buffer.readableByteCount();
+                    DataBufferUtils.release(buffer);
+                    return (long) bytes;
+                })
+                .reduce(0L, Long::sum)
+                .block();
+    }
+}
@@ -0,0 +1,90 @@
+package guru.springframework.spring5webfluxrest.benchmarks;
+
+import guru.springframework.spring5webfluxrest.Spring5WebfluxRestApplication;
+import guru.springframework.spring5webfluxrest.domain.Vendor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same requests served by the annotated controllers and by the router functions. {@code getVendorById} is
+ * answered from the cache, so it mostly measures the dispatching cost; compare its {@code gc.alloc.rate.norm}
+ * between the two routings for the allocation per request.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoutingBenchmark {
+
+    @Param({"annotated", "functional"})
+    private String routing;
+
+    private ConfigurableApplicationContext context;
+
+    private WebTestClient webTestClient;
+
+    private String vendorId;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(Spring5WebfluxRestApplication.class)
+                .properties("server.port=0", "api.routing=" + routing, "api.admission.enabled=false")
+                .run();
+        webTestClient = WebTestClient.bindToServer()
+                .baseUrl("http://localhost:" + context.getEnvironment().getProperty("local.server.port"))
+                .responseTimeout(Duration.ofSeconds(10))
+                .build();
+
+        final List<Vendor> vendors = webTestClient.get().uri("/api/v1/vendors").exchange()
+                .expectBodyList(Vendor.class).returnResult().getResponseBody();
+        vendorId = vendors.get(0).getId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] getVendorById() {
+        return webTestClient.get().uri("/api/v1/vendors/{id}", vendorId).exchange()
+                .expectStatus().isOk()
+                .expectBody().returnResult().getResponseBody();
+    }
+
+    @Benchmark
+    public byte[] getVendorPage() {
+        return webTestClient.get().uri("/api/v1/vendors?limit=10").exchange()
+                .expectStatus().isOk()
+                .expectBody().returnResult().getResponseBody();
+    }
+
+    @Benchmark
+    public byte[] patchVendor() {
+        return webTestClient.patch().uri("/api/v1/vendors/{id}", vendorId)
+                .body(Mono.just(Vendor.builder().lastName("Sumner").build()), Vendor.class)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().returnResult().getResponseBody();
+    }
+}
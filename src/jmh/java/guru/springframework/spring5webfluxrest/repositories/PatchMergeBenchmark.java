@@ -0,0 +1,67 @@
+package guru.springframework.spring5webfluxrest.repositories;
+
+import guru.springframework.spring5webfluxrest.domain.Category;
+import guru.springframework.spring5webfluxrest.domain.Vendor;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.convert.UpdateMapper;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a PATCH body into the {@code $set} sent to Mongo, on its own and once mapped
+ * to the stored document the way the template does before issuing the findAndModify.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PatchMergeBenchmark {
+
+    private final Vendor vendorPatch = Vendor.builder().firstName("Fabio").lastName("Posca").build();
+
+    private final Category categoryPatch = Category.builder().description("Beans").build();
+
+    private UpdateMapper updateMapper;
+
+    private MongoPersistentEntity<?> vendorEntity;
+
+    @Setup
+    public void setUp() {
+        final MongoMappingContext mappingContext = new MongoMappingContext();
+        final MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.afterPropertiesSet();
+        updateMapper = new UpdateMapper(converter);
+        vendorEntity = mappingContext.getRequiredPersistentEntity(Vendor.class);
+    }
+
+    @Benchmark
+    public Document vendorPatchUpdate() {
+        return VendorRepositoryCustomImpl.patchUpdate(vendorPatch).getUpdateObject();
+    }
+
+    @Benchmark
+    public Document categoryPatchUpdate() {
+        return CategoryRepositoryCustomImpl.patchUpdate(categoryPatch).getUpdateObject();
+    }
+
+    @Benchmark
+    public Document vendorPatchMappedUpdate() {
+        return updateMapper.getMappedObject(VendorRepositoryCustomImpl.patchUpdate(vendorPatch).getUpdateObject(), vendorEntity);
+    }
+}
@@ -0,0 +1,53 @@
+package guru.springframework.spring5webfluxrest.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency distribution and error count of one endpoint and method. Safe to record into from any thread.
+ */
+class LatencyRecorder {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_NANOS, 3);
+    private final AtomicLong errors = new AtomicLong();
+
+    void record(long latencyNanos, boolean success) {
+        recorder.recordValue(Math.min(latencyNanos, HIGHEST_TRACKABLE_NANOS));
+        if (!success) {
+            errors.incrementAndGet();
+        }
+    }
+
+    /**
+     * Drops everything recorded so far, used once the warm up is over.
+     */
+    void reset() {
+        recorder.reset();
+        errors.set(0);
+    }
+
+    Map<String, Object> report() {
+        final Histogram histogram = recorder.getIntervalHistogram();
+        final Map<String, Object> report = new LinkedHashMap<>();
+        report.put("count", histogram.getTotalCount());
+        report.put("errors", errors.get());
+        report.put("meanMicros", histogram.getMean() / 1_000);
+        report.put("p50Micros", micros(histogram, 50));
+        report.put("p90Micros", micros(histogram, 90));
+        report.put("p99Micros", micros(histogram, 99));
+        report.put("p999Micros", micros(histogram, 99.9));
+        report.put("maxMicros", histogram.getMaxValue() / 1_000);
+        return report;
+    }
+
+    private static long micros(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1_000;
+    }
+}
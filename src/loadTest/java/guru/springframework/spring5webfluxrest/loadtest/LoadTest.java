@@ -0,0 +1,203 @@
+package guru.springframework.spring5webfluxrest.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import guru.springframework.spring5webfluxrest.Spring5WebfluxRestApplication;
+import guru.springframework.spring5webfluxrest.domain.Category;
+import guru.springframework.spring5webfluxrest.domain.Vendor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Open model load test of the REST API: requests are started at a fixed arrival rate whatever the response
+ * times are, and each latency is measured from the time the request was due to start, so a stalled server shows
+ * up in the percentiles instead of slowing the generator down. Starts the application with embedded Mongo
+ * unless {@code loadTest.baseUrl} points to a running instance.
+ *
+ * <p>Settings, as system properties: {@code loadTest.rate} requests per second, {@code loadTest.duration} and
+ * {@code loadTest.warmup} as ISO-8601 or {@code 30s} style durations, {@code loadTest.maxInFlight} and
+ * {@code loadTest.report} the JSON report file.
+ */
+public class LoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTest.class);
+
+    private final WebClient webClient;
+    private final int rate;
+    private final Duration duration;
+    private final Duration warmup;
+    private final int maxInFlight;
+    private final Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+    private final List<Operation> operations = new ArrayList<>();
+    private final AtomicLong dropped = new AtomicLong();
+
+    LoadTest(WebClient webClient, int rate, Duration duration, Duration warmup, int maxInFlight) {
+        this.webClient = webClient;
+        this.rate = rate;
+        this.duration = duration;
+        this.warmup = warmup;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int rate = Integer.getInteger("loadTest.rate", 500);
+        final Duration duration = duration(System.getProperty("loadTest.duration", "60s"));
+        final Duration warmup = duration(System.getProperty("loadTest.warmup", "10s"));
+        final int maxInFlight = Integer.getInteger("loadTest.maxInFlight", 10_000);
+        final File reportFile = new File(System.getProperty("loadTest.report", "build/reports/loadtest/report.json"));
+
+        ConfigurableApplicationContext context = null;
+        String baseUrl = System.getProperty("loadTest.baseUrl");
+        if (baseUrl == null) {
+            context = new SpringApplicationBuilder(Spring5WebfluxRestApplication.class)
+                    .properties("server.port=0", "api.admission.enabled=false")
+                    .run();
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+
+        final LoopResources loopResources = LoopResources.create("load-test");
+        try {
+            final HttpClient httpClient = HttpClient.create(ConnectionProvider.elastic("load-test"))
+                    .tcpConfiguration(tcpClient -> tcpClient.runOn(loopResources));
+            final WebClient webClient = WebClient.builder()
+                    .baseUrl(baseUrl)
+                    .clientConnector(new ReactorClientHttpConnector(httpClient))
+                    .build();
+
+            final Map<String, Object> report = new LoadTest(webClient, rate, duration, warmup, maxInFlight).run();
+
+            reportFile.getAbsoluteFile().getParentFile().mkdirs();
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(reportFile, report);
+            log.info("Load test report written to {}", reportFile.getAbsolutePath());
+        } finally {
+            loopResources.dispose();
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    Map<String, Object> run() {
+        defineOperations();
+
+        final long periodNanos = 1_000_000_000L / rate;
+        final long totalRequests = (duration.toNanos() + warmup.toNanos()) / periodNanos;
+        final long warmupRequests = warmup.toNanos() / periodNanos;
+        final long start = System.nanoTime();
+
+        log.info("Running {} requests per second for {} after {} of warm up", rate, duration, warmup);
+        Flux.interval(Duration.ofNanos(periodNanos))
+                .take(totalRequests)
+                .onBackpressureDrop(tick -> dropped.incrementAndGet())
+                .flatMap(tick -> {
+                    if (tick == warmupRequests) {
+                        recorders.values().forEach(LatencyRecorder::reset);
+                        dropped.set(0);
+                    }
+                    final long intendedStart = start + (tick + 1) * periodNanos;
+                    return execute(pickOperation(), intendedStart);
+                }, maxInFlight)
+                .blockLast();
+
+        final Map<String, Object> report = new LinkedHashMap<>();
+        report.put("rate", rate);
+        report.put("durationSeconds", duration.getSeconds());
+        report.put("warmupSeconds", warmup.getSeconds());
+        report.put("dropped", dropped.get());
+        final Map<String, Object> endpoints = new LinkedHashMap<>();
+        recorders.forEach((name, recorder) -> endpoints.put(name, recorder.report()));
+        report.put("endpoints", endpoints);
+        return report;
+    }
+
+    private void defineOperations() {
+        final List<String> vendorIds = webClient.get().uri("/api/v1/vendors").retrieve()
+                .bodyToFlux(Vendor.class).map(Vendor::getId).collectList().block();
+        final List<String> categoryIds = webClient.get().uri("/api/v1/categories").retrieve()
+                .bodyToFlux(Category.class).map(Category::getId).collectList().block();
+
+        operation(8, HttpMethod.GET, "/api/v1/vendors/{id}", client -> client.get()
+                .uri("/api/v1/vendors/{id}", random(vendorIds)));
+        operation(2, HttpMethod.GET, "/api/v1/vendors", client -> client.get()
+                .uri("/api/v1/vendors"));
+        operation(1, HttpMethod.POST, "/api/v1/vendors", client -> client.post()
+                .uri("/api/v1/vendors")
+                .body(BodyInserters.fromObject(Vendor.builder().firstName("Load").lastName("Test").build())));
+        operation(1, HttpMethod.PUT, "/api/v1/vendors/{id}", client -> client.put()
+                .uri("/api/v1/vendors/{id}", random(vendorIds))
+                .body(BodyInserters.fromObject(Vendor.builder().firstName("Load").lastName("Test").build())));
+        operation(1, HttpMethod.PATCH, "/api/v1/vendors/{id}", client -> client.patch()
+                .uri("/api/v1/vendors/{id}", random(vendorIds))
+                .body(BodyInserters.fromObject(Vendor.builder().lastName("Patched").build())));
+
+        operation(8, HttpMethod.GET, "/api/v1/categories/{id}", client -> client.get()
+                .uri("/api/v1/categories/{id}", random(categoryIds)));
+        operation(2, HttpMethod.GET, "/api/v1/categories", client -> client.get()
+                .uri("/api/v1/categories"));
+        operation(1, HttpMethod.PATCH, "/api/v1/categories/{id}", client -> client.patch()
+                .uri("/api/v1/categories/{id}", random(categoryIds))
+                .body(BodyInserters.fromObject(Category.builder().build())));
+    }
+
+    private void operation(int weight, HttpMethod method, String path, Function<WebClient, WebClient.RequestHeadersSpec<?>> request) {
+        final Operation operation = new Operation(method + " " + path, request);
+        recorders.put(operation.name, new LatencyRecorder());
+        for (int i = 0; i < weight; i++) {
+            operations.add(operation);
+        }
+    }
+
+    private Operation pickOperation() {
+        return operations.get(ThreadLocalRandom.current().nextInt(operations.size()));
+    }
+
+    private Mono<Void> execute(Operation operation, long intendedStart) {
+        final LatencyRecorder recorder = recorders.get(operation.name);
+        return operation.request.apply(webClient)
+                .exchange()
+                .flatMap(response -> response.bodyToMono(Void.class).thenReturn(!response.statusCode().isError()))
+                .onErrorReturn(false)
+                .doOnNext(success -> recorder.record(System.nanoTime() - intendedStart, success))
+                .then();
+    }
+
+    private static String random(List<String> ids) {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    private static Duration duration(String value) {
+        return value.startsWith("P") ? Duration.parse(value) : Duration.parse("PT" + value.toUpperCase());
+    }
+
+    private static class Operation {
+
+        private final String name;
+        private final Function<WebClient, WebClient.RequestHeadersSpec<?>> request;
+
+        Operation(String name, Function<WebClient, WebClient.RequestHeadersSpec<?>> request) {
+            this.name = name;
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package guru.springframework.spring5webfluxrest.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control of the writes to the API, on with {@code api.admission.enabled=true}. A client over its rate gets a 429 and, once too many writes are being
+ * processed, any client gets a 503, both at once and with a Retry-After, so a client streaming large bodies cannot
+ * take Mongo away from the reads. Reads are not limited. Decisions take no lock: a compare and set on the bucket of
+ * the client and one on the count of writes in flight.
+ * <p>
+ * Ordered after the request metrics filter, so rejected requests show up in {@code http.server.requests}.
+ */
+@Component
+@ConditionalOnProperty(name = "api.admission.enabled", havingValue = "true")
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class AdmissionFilter implements WebFilter, MeterBinder {
+
+    static final String METRIC_NAME = "api.admission";
+    static final String IN_FLIGHT_METRIC_NAME = "api.admission.writes.inflight";
+
+    private static final Set<HttpMethod> WRITES = EnumSet.of(HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH, HttpMethod.DELETE);
+
+    private final AdmissionProperties properties;
+    private final Cache<String, TokenBucket> buckets;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+
+    public AdmissionFilter(AdmissionProperties properties) {
+        this.properties = properties;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxClients())
+                .build();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        final ServerHttpRequest request = exchange.getRequest();
+        if (!isWrite(request)) {
+            return chain.filter(exchange);
+        }
+
+        // the slot first, so a write shed for lack of one does not spend a token of its client
+        if (!tryBeginWrite()) {
+            shed.increment();
+            return reject(exchange.getResponse(), HttpStatus.SERVICE_UNAVAILABLE, properties.getRetryAfter().toNanos());
+        }
+        final long now = System.nanoTime();
+        final long wait = buckets.get(client(request),
+                client -> new TokenBucket(properties.getWritesPerSecond(), properties.getBurst(), now))
+                .tryAcquire(now);
+        if (wait > 0) {
+            inFlight.decrementAndGet();
+            rateLimited.increment();
+            return reject(exchange.getResponse(), HttpStatus.TOO_MANY_REQUESTS, wait);
+        }
+
+        admitted.increment();
+        return chain.filter(exchange)
+                .doFinally(signal -> inFlight.decrementAndGet());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindOutcome(registry, "admitted", admitted);
+        bindOutcome(registry, "rate_limited", rateLimited);
+        bindOutcome(registry, "shed", shed);
+        Gauge.builder(IN_FLIGHT_METRIC_NAME, inFlight, AtomicInteger::get)
+                .description("Writes being processed")
+                .register(registry);
+    }
+
+    private boolean isWrite(ServerHttpRequest request) {
+        return WRITES.contains(request.getMethod()) && request.getPath().value().startsWith("/api/");
+    }
+
+    private String client(ServerHttpRequest request) {
+        if (properties.getClientHeader() != null) {
+            final String client = request.getHeaders().getFirst(properties.getClientHeader());
+            if (client != null) {
+                return client;
+            }
+        }
+        final InetSocketAddress remoteAddress = request.getRemoteAddress();
+        return remoteAddress == null ? "" : remoteAddress.getHostString();
+    }
+
+    private boolean tryBeginWrite() {
+        while (true) {
+            final int current = inFlight.get();
+            if (current >= properties.getMaxConcurrentWrites()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private static Mono<Void> reject(ServerHttpResponse response, HttpStatus status, long retryAfterNanos) {
+        response.setStatusCode(status);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER,
+                Long.toString(Math.max(1, (retryAfterNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1))));
+        return response.setComplete();
+    }
+
+    private static void bindOutcome(MeterRegistry registry, String outcome, LongAdder count) {
+        FunctionCounter.builder(METRIC_NAME, count, LongAdder::sum)
+                .description("Writes admitted or rejected by admission control")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
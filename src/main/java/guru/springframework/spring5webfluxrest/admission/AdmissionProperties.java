@@ -0,0 +1,50 @@
+package guru.springframework.spring5webfluxrest.admission;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties("api.admission")
+public class AdmissionProperties {
+
+    /**
+     * Off unless asked for: the limits below suit clients told apart by {@link #clientHeader}, not integrations
+     * writing the same documents many times a second from behind one address.
+     */
+    private boolean enabled;
+
+    /**
+     * Writes (POST, PUT, PATCH and DELETE) each client may make per second on average.
+     */
+    private double writesPerSecond = 20;
+
+    /**
+     * Writes a client may make at once after being idle, above its rate.
+     */
+    private int burst = 40;
+
+    /**
+     * Header telling clients apart, such as an API key. Without it, or when a request lacks it, the client is the
+     * remote address, which all clients behind the same proxy or NAT share.
+     */
+    private String clientHeader;
+
+    /**
+     * Clients whose rate is tracked at once; the least recently seen are forgotten first.
+     */
+    private long maxClients = 100_000;
+
+    /**
+     * Writes being processed at the same time across all clients; more are rejected with a 503.
+     */
+    private int maxConcurrentWrites = 64;
+
+    /**
+     * Retry-After sent with a 503.
+     */
+    private Duration retryAfter = Duration.ofSeconds(1);
+}
@@ -0,0 +1,37 @@
+package guru.springframework.spring5webfluxrest.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket kept as the single time at which it will be full again (the generic cell rate algorithm), so taking
+ * a token is one compare and set.
+ */
+final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long capacityNanos;
+    private final AtomicLong fullAt;
+
+    TokenBucket(double permitsPerSecond, int burst, long nowNanos) {
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+        this.capacityNanos = intervalNanos * Math.max(1, burst);
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes a token, returning zero, or returns how long until one is available without taking it.
+     */
+    long tryAcquire(long nowNanos) {
+        while (true) {
+            final long current = fullAt.get();
+            final long next = (current - nowNanos > 0 ? current : nowNanos) + intervalNanos;
+            final long wait = next - nowNanos - capacityNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package guru.springframework.spring5webfluxrest.bootstrap;
 
+import guru.springframework.spring5webfluxrest.bulk.BatchResult;
+import guru.springframework.spring5webfluxrest.bulk.BulkIngester;
 import guru.springframework.spring5webfluxrest.domain.Category;
 import guru.springframework.spring5webfluxrest.domain.Vendor;
 import guru.springframework.spring5webfluxrest.repositories.CategoryRepository;
 import guru.springframework.spring5webfluxrest.repositories.VendorRepository;
+import guru.springframework.spring5webfluxrest.summary.VendorSummaries;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
@@ -11,86 +14,104 @@ import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.text.MessageFormat;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Function;
 
 @Slf4j
 @AllArgsConstructor
 @Component
 public class Bootstrap implements CommandLineRunner {
 
+    private static final List<String> CATEGORIES = Arrays.asList("Fruit", "Nuts", "Breads", "Meats", "Eggs", "Dried");
+
+    private static final List<String> FIRST_NAMES = Arrays.asList("Gordon", "Peter", "Phil", "Charly", "Bob", "Gustavo", "Nile");
+    private static final List<String> LAST_NAMES = Arrays.asList("Sumner", "Tosh", "Collins", "Garcia", "Marley", "Cerati", "Rodgers");
+
     final CategoryRepository categoryRepository;
     final VendorRepository vendorRepository;
+    final BulkIngester bulkIngester;
+    final SeedProperties seedProperties;
+    final VendorSummaries vendorSummaries;
 
     @Override
     public void run(String... args) throws Exception {
-        loadCategories();
-        loadVendors();
+        if (!seedProperties.isEnabled()) {
+            log.info("Seeding disabled");
+            return;
+        }
+        if (seedProperties.isWaitForCompletion()) {
+            seed().block();
+        } else {
+            seed().subscribe(null, e -> log.error("Seeding failed", e));
+        }
     }
 
-    private void loadCategories() {
-        final Long documentCount = categoryRepository.count().block();
-        if (documentCount == 0L) {
-            List<Category> categories = Arrays.asList(
-                    Category.builder()
-                            .description("Fruit")
-                            .build(),
-                    Category.builder()
-                            .description("Nuts")
-                            .build(),
-                    Category.builder()
-                            .description("Breads")
-                            .build(),
-                    Category.builder()
-                            .description("Meats")
-                            .build(),
-                    Category.builder()
-                            .description("Eggs")
-                            .build(),
-                    Category.builder()
-                            .description("Dried")
-                            .build());
-            categoryRepository.saveAll(categories).blockLast();
-        }
-        log.info(MessageFormat.format("Category document count {0}", categoryRepository.count().block().toString()));
+    /**
+     * Counts both collections at once and fills the empty ones at the same time, each through parallel unordered
+     * batch inserts. The vendor summaries are counted once the vendors are in.
+     */
+    Mono<Void> seed() {
+        return Mono.zip(categoryRepository.count(), vendorRepository.count())
+                .flatMap(counts -> Mono.when(
+                        counts.getT1() == 0L
+                                ? load("Category", categories(), categoryRepository::insertUnordered)
+                                : skip("Category", counts.getT1()),
+                        counts.getT2() == 0L
+                                ? load("Vendor", vendors(), vendorRepository::insertUnordered).then(vendorSummaries.rebuild()).then()
+                                : skip("Vendor", counts.getT2())));
     }
 
-    private void loadVendors() {
-        final Long documentCount = vendorRepository.count().block();
-        if (documentCount == 0L) {
-            final List<Vendor> vendors = Arrays.asList(
-                    Vendor.builder()
-                            .firstName("Gordon")
-                            .lastName("Sumner")
-                            .build(),
-                    Vendor.builder()
-                            .firstName("Peter")
-                            .lastName("Tosh")
-                            .build(),
-                    Vendor.builder()
-                            .firstName("Phil")
-                            .lastName("Collins")
-                            .build(),
-                    Vendor.builder()
-                            .firstName("Charly")
-                            .lastName("Garcia")
-                            .build(),
-                    Vendor.builder()
-                            .firstName("Bob")
-                            .lastName("Marley")
-                            .build(),
-                    Vendor.builder()
-                            .firstName("Gustavo")
-                            .lastName("Cerati")
-                            .build(),
-                    Vendor.builder()
-                            .firstName("Nile")
-                            .lastName("Rodgers")
-                            .build()
-            );
-            vendorRepository.saveAll(vendors).blockLast();
-            log.info(MessageFormat.format("Vendor Document count {0}", vendorRepository.count().block().toString()));
-        }
+    Flux<Category> categories() {
+        return Flux.range(0, CATEGORIES.size() + seedProperties.getCategories())
+                .map(i -> Category.builder()
+                        .description(i < CATEGORIES.size() ? CATEGORIES.get(i) : "Category " + i)
+                        .build());
+    }
+
+    /**
+     * The fixture vendors pair each first name with the last name at the same position; the generated ones walk
+     * through every other pair, then repeat them with a number.
+     */
+    Flux<Vendor> vendors() {
+        final int names = FIRST_NAMES.size();
+        return Flux.range(0, names + seedProperties.getVendors())
+                .map(i -> {
+                    final int pair = i % (names * names);
+                    final int round = i / (names * names);
+                    final String lastName = LAST_NAMES.get((pair % names + pair / names) % names);
+                    return Vendor.builder()
+                            .firstName(FIRST_NAMES.get(pair % names))
+                            .lastName(round == 0 ? lastName : lastName + " " + round)
+                            .build();
+                });
+    }
+
+    private <T> Mono<Void> load(String collection, Flux<T> documents, Function<List<T>, Mono<Long>> writer) {
+        return Mono.defer(() -> {
+            final long start = System.nanoTime();
+            return bulkIngester.ingest(documents, writer, seedProperties.getBatchSize(), seedProperties.getParallelism())
+                    .reduceWith(() -> new long[2], (totals, batch) -> add(totals, batch))
+                    .doOnNext(totals -> report(collection, totals[0], totals[1], Duration.ofNanos(System.nanoTime() - start)))
+                    .then();
+        });
+    }
+
+    private static long[] add(long[] totals, BatchResult batch) {
+        totals[0] += batch.getInserted();
+        totals[1] += batch.getFailed();
+        return totals;
+    }
+
+    private static void report(String collection, long inserted, long failed, Duration elapsed) {
+        final double seconds = Math.max(elapsed.toNanos(), 1L) / 1e9;
+        log.info("{} documents seeded: {} inserted, {} failed in {} ms ({} documents/s)",
+                collection, inserted, failed, elapsed.toMillis(), Math.round(inserted / seconds));
+    }
+
+    private static Mono<Void> skip(String collection, long count) {
+        log.info("{} document count {}, not seeding", collection, count);
+        return Mono.empty();
     }
 }
@@ -0,0 +1,225 @@
+package guru.springframework.spring5webfluxrest.bootstrap;
+
+import guru.springframework.spring5webfluxrest.domain.Category;
+import guru.springframework.spring5webfluxrest.domain.Vendor;
+import guru.springframework.spring5webfluxrest.repositories.PrefixSearch;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Creates the indexes the repositories rely on before {@link Bootstrap} loads any data, replacing those whose
+ * definition changed, then explains the hot queries and reports any of them planned as a collection scan.
+ */
+@Slf4j
+@AllArgsConstructor
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class IndexInitializer implements CommandLineRunner {
+
+    static final List<ManagedIndex> INDEXES = Arrays.asList(
+            new ManagedIndex(Vendor.class, new Index()
+                    .on("lastName", Sort.Direction.ASC)
+                    .on("firstName", Sort.Direction.ASC)
+                    .named("vendor_name")),
+            new ManagedIndex(Vendor.class, new Index()
+                    .on("lastName", Sort.Direction.ASC)
+                    .on("firstName", Sort.Direction.ASC)
+                    .collation(PrefixSearch.CASE_INSENSITIVE)
+                    .named("vendor_last_name_search")),
+            new ManagedIndex(Vendor.class, new Index()
+                    .on("firstName", Sort.Direction.ASC)
+                    .on("lastName", Sort.Direction.ASC)
+                    .collation(PrefixSearch.CASE_INSENSITIVE)
+                    .named("vendor_first_name_search")),
+            new ManagedIndex(Vendor.class, new Index()
+                    .on("lastModified", Sort.Direction.ASC)
+                    .on("_id", Sort.Direction.ASC)
+                    .named("vendor_last_modified")),
+            new ManagedIndex(Vendor.class, new Index()
+                    .on("categoryId", Sort.Direction.ASC)
+                    .on("lastName", Sort.Direction.ASC)
+                    .on("firstName", Sort.Direction.ASC)
+                    .named("vendor_category")),
+            new ManagedIndex(Vendor.class, new Index()
+                    .on("externalId", Sort.Direction.ASC)
+                    .unique()
+                    .sparse()
+                    .named("vendor_external_id")),
+            new ManagedIndex(Category.class, new Index()
+                    .on("description", Sort.Direction.ASC)
+                    .unique()
+                    .named("category_description")),
+            new ManagedIndex(Category.class, new Index()
+                    .on("description", Sort.Direction.ASC)
+                    .collation(PrefixSearch.CASE_INSENSITIVE)
+                    .named("category_description_search")),
+            new ManagedIndex(Category.class, new Index()
+                    .on("lastModified", Sort.Direction.ASC)
+                    .on("_id", Sort.Direction.ASC)
+                    .named("category_last_modified")),
+            new ManagedIndex(Category.class, new Index()
+                    .on("externalId", Sort.Direction.ASC)
+                    .unique()
+                    .sparse()
+                    .named("category_external_id")));
+
+    /**
+     * The queries behind {@code findByLastName}, {@code findByLastNameAndFirstName}, {@code findByDescription},
+     * the prefix searches, the paged list endpoints, the vendors of a category, the snapshot sync and the changes
+     * since a stamp.
+     */
+    static final List<HotQuery> HOT_QUERIES = Arrays.asList(
+            new HotQuery(Vendor.class, "findByLastName", new Query(where("lastName").is(""))),
+            new HotQuery(Vendor.class, "findByLastNameAndFirstName", new Query(where("lastName").is("").and("firstName").is(""))),
+            new HotQuery(Vendor.class, "findPage", new Query(where("_id").gt("")).with(Sort.by("_id")).limit(1)),
+            new HotQuery(Vendor.class, "searchByName(lastName)", PrefixSearch.query("lastName", "a", Sort.by("lastName", "firstName"), 1)),
+            new HotQuery(Vendor.class, "searchByName(firstName)", PrefixSearch.query("firstName", "a", Sort.by("firstName", "lastName"), 1)),
+            new HotQuery(Vendor.class, "findByCategory", new Query(where("categoryId").is(new ObjectId())).with(Sort.by("lastName", "firstName"))),
+            new HotQuery(Vendor.class, "findByExternalIds", new Query(where("externalId").in(""))),
+            new HotQuery(Vendor.class, "findModifiedSince", new Query(where("lastModified").gte(new Date())).with(Sort.by("lastModified", "_id"))),
+            new HotQuery(Category.class, "findByDescription", new Query(where("description").is(""))),
+            new HotQuery(Category.class, "searchByDescription", PrefixSearch.query("description", "a", Sort.by("description"), 1)),
+            new HotQuery(Category.class, "findPage", new Query(where("_id").gt("")).with(Sort.by("_id")).limit(1)),
+            new HotQuery(Category.class, "findByExternalIds", new Query(where("externalId").in(""))),
+            new HotQuery(Category.class, "findModifiedSince", new Query(where("lastModified").gte(new Date())).with(Sort.by("lastModified", "_id"))));
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final IndexProperties indexProperties;
+
+    @Override
+    public void run(String... args) throws Exception {
+        Flux.fromIterable(INDEXES)
+                .concatMap(this::reconcile)
+                .blockLast();
+        if (indexProperties.isVerifyQueryPlans()) {
+            verifyQueryPlans();
+        }
+    }
+
+    Mono<String> reconcile(ManagedIndex managed) {
+        final ReactiveIndexOperations indexOps = reactiveMongoTemplate.indexOps(managed.entity);
+        final String name = managed.index.getIndexOptions().getString("name");
+        return indexOps.getIndexInfo()
+                .filter(existing -> existing.getName().equals(name))
+                .next()
+                .flatMap(existing -> {
+                    if (matches(managed.index, existing)) {
+                        return Mono.just(name);
+                    }
+                    log.info("Recreating index {} on {} with its new definition", name, managed.entity.getSimpleName());
+                    return indexOps.dropIndex(name).then(Mono.empty());
+                })
+                .switchIfEmpty(Mono.defer(() -> indexOps.ensureIndex(managed.index)));
+    }
+
+    void verifyQueryPlans() {
+        final List<HotQuery> collectionScans = Flux.fromIterable(HOT_QUERIES)
+                .concatMap(hotQuery -> explain(hotQuery)
+                        .filter(IndexInitializer::isCollectionScan)
+                        .map(plan -> hotQuery))
+                .collectList()
+                .block();
+        if (collectionScans.isEmpty()) {
+            return;
+        }
+        final String message = "Hot queries planned as collection scans: " + collectionScans.stream()
+                .map(HotQuery::toString)
+                .collect(Collectors.joining(", "));
+        if (indexProperties.isFailOnCollectionScan()) {
+            throw new IllegalStateException(message);
+        }
+        log.warn(message);
+    }
+
+    private Mono<Document> explain(HotQuery hotQuery) {
+        final Document find = new Document("find", reactiveMongoTemplate.getCollectionName(hotQuery.entity))
+                .append("filter", hotQuery.query.getQueryObject())
+                .append("sort", hotQuery.query.getSortObject());
+        if (hotQuery.query.getLimit() > 0) {
+            find.append("limit", hotQuery.query.getLimit());
+        }
+        hotQuery.query.getCollation().ifPresent(collation -> find.append("collation", collation.toDocument()));
+        return reactiveMongoTemplate.executeCommand(new Document("explain", find).append("verbosity", "queryPlanner"))
+                .map(explained -> explained.get("queryPlanner", Document.class).get("winningPlan", Document.class));
+    }
+
+    /**
+     * Looks for a {@code COLLSCAN} stage anywhere in the winning plan, including under sorts, fetches and ORs.
+     */
+    static boolean isCollectionScan(Document plan) {
+        if ("COLLSCAN".equals(plan.getString("stage"))) {
+            return true;
+        }
+        final Document inputStage = plan.get("inputStage", Document.class);
+        if (inputStage != null && isCollectionScan(inputStage)) {
+            return true;
+        }
+        return Optional.ofNullable((List<?>) plan.get("inputStages", List.class))
+                .map(inputStages -> inputStages.stream().anyMatch(stage -> isCollectionScan((Document) stage)))
+                .orElse(false);
+    }
+
+    static boolean matches(Index index, IndexInfo existing) {
+        final List<String> keys = existing.getIndexFields().stream()
+                .map(field -> field.getKey() + ":" + (field.getDirection() == Sort.Direction.DESC ? -1 : 1))
+                .collect(Collectors.toList());
+        final List<String> expectedKeys = index.getIndexKeys().entrySet().stream()
+                .map(key -> key.getKey() + ":" + ((Number) key.getValue()).intValue())
+                .collect(Collectors.toList());
+        return keys.equals(expectedKeys)
+                && existing.isUnique() == index.getIndexOptions().getBoolean("unique", false)
+                && collation(existing.getCollation())
+                .equals(collation(Optional.ofNullable(index.getIndexOptions().get("collation", Document.class))));
+    }
+
+    /**
+     * The server reports every collation setting, defaults included, so only the ones declared here are compared.
+     */
+    private static String collation(Optional<Document> collation) {
+        return collation
+                .map(settings -> settings.getString("locale") + "/" + settings.get("strength"))
+                .orElse("simple");
+    }
+
+    @AllArgsConstructor
+    static class ManagedIndex {
+
+        private final Class<?> entity;
+        private final Index index;
+    }
+
+    @AllArgsConstructor
+    static class HotQuery {
+
+        private final Class<?> entity;
+        private final String name;
+        private final Query query;
+
+        @Override
+        public String toString() {
+            return entity.getSimpleName() + "." + name;
+        }
+    }
+}
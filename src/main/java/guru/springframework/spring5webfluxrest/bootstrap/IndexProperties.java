@@ -0,0 +1,21 @@
+package guru.springframework.spring5webfluxrest.bootstrap;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties("api.indexes")
+public class IndexProperties {
+
+    /**
+     * Whether the plans of the hot queries are explained at startup.
+     */
+    private boolean verifyQueryPlans = true;
+
+    /**
+     * Whether a hot query planned as a collection scan stops the startup instead of being logged as a warning.
+     */
+    private boolean failOnCollectionScan = false;
+}
@@ -0,0 +1,42 @@
+package guru.springframework.spring5webfluxrest.bootstrap;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties("api.seed")
+public class SeedProperties {
+
+    /**
+     * Whether empty collections are seeded at startup. When disabled the collections are not even counted.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Number of generated categories inserted after the fixture ones.
+     */
+    private int categories = 0;
+
+    /**
+     * Number of generated vendors inserted after the fixture ones.
+     */
+    private int vendors = 0;
+
+    /**
+     * Maximum number of documents written by a single insertMany.
+     */
+    private int batchSize = 1000;
+
+    /**
+     * Maximum number of batches being written at the same time.
+     */
+    private int parallelism = 4;
+
+    /**
+     * Whether startup waits for the seeding to finish. When disabled the application serves requests while the
+     * documents are still being inserted.
+     */
+    private boolean waitForCompletion = true;
+}
@@ -0,0 +1,19 @@
+package guru.springframework.spring5webfluxrest.bulk;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class BatchResult {
+
+    private long batch;
+    private int size;
+    private long inserted;
+    private long failed;
+    private String error;
+}
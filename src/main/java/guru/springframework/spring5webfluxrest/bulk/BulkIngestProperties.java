@@ -0,0 +1,28 @@
+package guru.springframework.spring5webfluxrest.bulk;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties("api.bulk")
+public class BulkIngestProperties {
+
+    /**
+     * Maximum number of documents written by a single insertMany.
+     */
+    private int batchSize = 1000;
+
+    /**
+     * Maximum time a partial batch waits for more documents before being written.
+     */
+    private Duration window = Duration.ofMillis(500);
+
+    /**
+     * Maximum number of batches being written at the same time.
+     */
+    private int maxBatchesInFlight = 4;
+}
@@ -0,0 +1,55 @@
+package guru.springframework.spring5webfluxrest.bulk;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Slf4j
+@AllArgsConstructor
+@Component
+public class BulkIngester {
+
+    private final BulkIngestProperties properties;
+
+    /**
+     * Groups the incoming documents into batches closed by size or by time, whichever comes first, and hands each
+     * batch to the writer with at most {@code maxBatchesInFlight} writes running at once. The writer returns the
+     * number of documents it inserted; a batch whose write fails altogether is reported with every document failed.
+     */
+    public <T> Flux<BatchResult> ingest(Publisher<T> documents, Function<List<T>, Mono<Long>> batchWriter) {
+        return ingest(documents, batchWriter, properties.getBatchSize(), properties.getMaxBatchesInFlight());
+    }
+
+    public <T> Flux<BatchResult> ingest(Publisher<T> documents, Function<List<T>, Mono<Long>> batchWriter,
+                                        int batchSize, int maxBatchesInFlight) {
+        return Flux.from(documents)
+                .bufferTimeout(batchSize, properties.getWindow())
+                .index()
+                .flatMap(batch -> write(batch.getT1(), batch.getT2(), batchWriter), maxBatchesInFlight);
+    }
+
+    private <T> Mono<BatchResult> write(long batchNumber, List<T> batch, Function<List<T>, Mono<Long>> batchWriter) {
+        return batchWriter.apply(batch)
+                .map(inserted -> BatchResult.builder()
+                        .batch(batchNumber)
+                        .size(batch.size())
+                        .inserted(inserted)
+                        .failed(batch.size() - inserted)
+                        .build())
+                .onErrorResume(e -> {
+                    log.warn("Batch {} of {} documents failed", batchNumber, batch.size(), e);
+                    return Mono.just(BatchResult.builder()
+                            .batch(batchNumber)
+                            .size(batch.size())
+                            .failed(batch.size())
+                            .error(e.getMessage())
+                            .build());
+                });
+    }
+}
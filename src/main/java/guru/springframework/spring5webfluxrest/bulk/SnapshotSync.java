@@ -0,0 +1,108 @@
+package guru.springframework.spring5webfluxrest.bulk;
+
+import guru.springframework.spring5webfluxrest.domain.ExternallyKeyed;
+import guru.springframework.spring5webfluxrest.repositories.ExternalIdOperations;
+import lombok.AllArgsConstructor;
+import org.bson.types.ObjectId;
+import org.reactivestreams.Publisher;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Brings the documents with an external id in line with a full snapshot of the upstream master data. The snapshot
+ * is read in batches. Each batch costs one indexed read of the stored documents and one unordered bulk upsert of
+ * those that are new or changed, so unchanged documents are never written. Once the whole snapshot is in, the
+ * documents it no longer holds are found from the external id index and deleted in batches. Syncing the same
+ * snapshot again writes nothing, so a failed sync is simply retried.
+ */
+@AllArgsConstructor
+@Component
+public class SnapshotSync {
+
+    private final BulkIngestProperties properties;
+
+    /**
+     * Applies the snapshot, calling {@code written} for each document inserted or updated and {@code deleted} for
+     * each one removed. A document appearing twice in the snapshot is taken as its last occurrence. Documents are
+     * matched by external id only: any id in the snapshot is ignored, and new documents get one of their own.
+     */
+    public <T extends ExternallyKeyed<T>> Mono<SyncResult> sync(Publisher<T> snapshot, ExternalIdOperations<T> repository,
+                                                                boolean deleteMissing, Function<T, Mono<?>> written,
+                                                                Function<T, Mono<?>> deleted) {
+        return Mono.defer(() -> {
+            final Set<String> seen = new HashSet<>();
+            final SyncResult result = new SyncResult();
+            return Flux.from(snapshot)
+                    .bufferTimeout(properties.getBatchSize(), properties.getWindow())
+                    .concatMap(batch -> syncBatch(batch, repository, seen, result, written))
+                    .then(Mono.defer(() -> deleteMissing ? deleteMissing(repository, seen, result, deleted) : Mono.<Void>empty()))
+                    .thenReturn(result);
+        });
+    }
+
+    private static <T extends ExternallyKeyed<T>> Mono<Void> syncBatch(List<T> batch, ExternalIdOperations<T> repository,
+                                                                       Set<String> seen, SyncResult result,
+                                                                       Function<T, Mono<?>> written) {
+        final Map<String, T> incoming = new LinkedHashMap<>();
+        for (T document : batch) {
+            if (document.getExternalId() == null || document.getExternalId().isEmpty()) {
+                return Mono.error(new ServerWebInputException("externalId must not be empty"));
+            }
+            incoming.put(document.getExternalId(), document);
+        }
+        seen.addAll(incoming.keySet());
+        return repository.findByExternalIds(incoming.keySet())
+                .collectMap(T::getExternalId)
+                .flatMap(stored -> {
+                    final Map<String, T> changed = new LinkedHashMap<>();
+                    long inserted = 0L;
+                    for (T document : incoming.values()) {
+                        final T current = stored.get(document.getExternalId());
+                        if (current == null) {
+                            // the upsert is keyed by id, so an id sent along could replace an unrelated document
+                            document.setId(new ObjectId().toHexString());
+                            inserted++;
+                        } else if (current.sameContent(document)) {
+                            continue;
+                        } else {
+                            document.setId(current.getId());
+                        }
+                        changed.put(document.getId(), document);
+                    }
+                    final long insertedInBatch = inserted;
+                    return repository.replaceAll(changed)
+                            .doOnNext(writes -> {
+                                result.setInserted(result.getInserted() + insertedInBatch);
+                                result.setUpdated(result.getUpdated() + changed.size() - insertedInBatch);
+                                result.setUnchanged(result.getUnchanged() + incoming.size() - changed.size());
+                            })
+                            .thenMany(Flux.fromIterable(changed.values()))
+                            .concatMap(written)
+                            .then();
+                });
+    }
+
+    private <T extends ExternallyKeyed<T>> Mono<Void> deleteMissing(ExternalIdOperations<T> repository, Set<String> seen,
+                                                                    SyncResult result, Function<T, Mono<?>> deleted) {
+        return repository.findExternalIds()
+                .filter(externalId -> !seen.contains(externalId))
+                .buffer(properties.getBatchSize())
+                .concatMap(missing -> repository.findByExternalIds(missing)
+                        .collectList()
+                        .flatMap(documents -> repository.deleteByExternalIds(missing)
+                                .doOnNext(count -> result.setDeleted(result.getDeleted() + count))
+                                .thenMany(Flux.fromIterable(documents))
+                                .concatMap(deleted)
+                                .then()))
+                .then();
+    }
+}
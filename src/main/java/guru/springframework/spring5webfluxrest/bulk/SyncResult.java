@@ -0,0 +1,18 @@
+package guru.springframework.spring5webfluxrest.bulk;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class SyncResult {
+
+    private long inserted;
+    private long updated;
+    private long unchanged;
+    private long deleted;
+}
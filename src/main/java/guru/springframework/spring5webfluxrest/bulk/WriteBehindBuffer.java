@@ -0,0 +1,128 @@
+package guru.springframework.spring5webfluxrest.bulk;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.publisher.UnicastProcessor;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Buffers updates of whole documents for a window and hands them to the writer in one go, keeping only the last
+ * update of each id, so a document updated many times a second is written once per window. Flushes run one after
+ * the other, in the order the updates came in. At most {@code maxPending} updates are held at once; past that the
+ * buffer refuses updates, which the caller then turns away rather than writing them past the buffer. Any other
+ * write of a document must wait for {@link #written(String)}, or the flush of an older update would overwrite it.
+ * The last updates are flushed when the buffer closes.
+ */
+@Slf4j
+public class WriteBehindBuffer<T> implements AutoCloseable {
+
+    private final WriteBehindProperties properties;
+    private final Function<Map<String, T>, Mono<?>> writer;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Map<String, MonoProcessor<Void>> pendingById = new ConcurrentHashMap<>();
+    private final FluxSink<Update<T>> updates;
+    private final Mono<Void> flushed;
+
+    public WriteBehindBuffer(WriteBehindProperties properties, Function<Map<String, T>, Mono<?>> writer) {
+        this.properties = properties;
+        this.writer = writer;
+        final UnicastProcessor<Update<T>> processor = UnicastProcessor.create();
+        this.updates = processor.sink();
+        this.flushed = properties.isEnabled()
+                ? processor.bufferTimeout(properties.getMaxPending(), properties.getWindow())
+                        .concatMap(this::flush)
+                        .then()
+                        .cache()
+                : Mono.empty();
+        flushed.subscribe();
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Buffers the document, returning a Mono completing once it is written, or null when the buffer is disabled
+     * or full.
+     */
+    @Nullable
+    public Mono<Void> buffer(String id, T document) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        if (pending.incrementAndGet() > properties.getMaxPending()) {
+            pending.decrementAndGet();
+            return null;
+        }
+        final MonoProcessor<Void> written = MonoProcessor.create();
+        pendingById.put(id, written);
+        updates.next(new Update<>(id, document, written));
+        return written;
+    }
+
+    /**
+     * Completes once the updates of the document buffered so far are flushed, whether the flush succeeded or not,
+     * and at once when none is pending.
+     */
+    public Mono<Void> written(String id) {
+        final MonoProcessor<Void> written = pendingById.get(id);
+        return written == null ? Mono.empty() : written.onErrorResume(e -> Mono.empty());
+    }
+
+    /**
+     * How long a client turned away by a full buffer should wait: until the next flush has made room.
+     */
+    public Duration retryAfter() {
+        return properties.getWindow();
+    }
+
+    public boolean acknowledgesOnBuffer() {
+        return properties.getDurability() == WriteBehindProperties.Durability.ON_BUFFER;
+    }
+
+    @Override
+    public void close() {
+        updates.complete();
+        flushed.block(properties.getShutdownTimeout());
+    }
+
+    private Mono<Void> flush(List<Update<T>> batch) {
+        final Map<String, T> latest = new LinkedHashMap<>();
+        batch.forEach(update -> latest.put(update.id, update.document));
+        return writer.apply(latest)
+                .doOnSuccess(result -> batch.forEach(update -> update.written.onComplete()))
+                .then()
+                .onErrorResume(e -> {
+                    log.warn("Flush of {} buffered updates failed", latest.size(), e);
+                    batch.forEach(update -> update.written.onError(e));
+                    return Mono.empty();
+                })
+                .doFinally(signal -> {
+                    batch.forEach(update -> pendingById.remove(update.id, update.written));
+                    pending.addAndGet(-batch.size());
+                });
+    }
+
+    private static class Update<T> {
+
+        private final String id;
+        private final T document;
+        private final MonoProcessor<Void> written;
+
+        Update(String id, T document, MonoProcessor<Void> written) {
+            this.id = id;
+            this.document = document;
+            this.written = written;
+        }
+    }
+}
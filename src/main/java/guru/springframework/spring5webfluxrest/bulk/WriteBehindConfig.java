@@ -0,0 +1,44 @@
+package guru.springframework.spring5webfluxrest.bulk;
+
+import guru.springframework.spring5webfluxrest.cache.CollectionStamp;
+import guru.springframework.spring5webfluxrest.cache.ReactiveReadThroughCache;
+import guru.springframework.spring5webfluxrest.domain.Category;
+import guru.springframework.spring5webfluxrest.domain.Vendor;
+import guru.springframework.spring5webfluxrest.repositories.CategoryRepository;
+import guru.springframework.spring5webfluxrest.repositories.VendorRepository;
+import guru.springframework.spring5webfluxrest.summary.VendorSummaries;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.publisher.Flux;
+
+/**
+ * The buffered documents are stamped when they are flushed rather than when they are buffered, so they are not
+ * missed by a client asking for the changes since a stamp it got in between.
+ */
+@Configuration
+public class WriteBehindConfig {
+
+    @Bean
+    WriteBehindBuffer<Category> categoryWriteBehind(WriteBehindProperties properties, CategoryRepository categoryRepository,
+                                                    ReactiveReadThroughCache<Category> categoryCache, CollectionStamp categoryStamp) {
+        return new WriteBehindBuffer<>(properties, categories -> categoryStamp.write(modified -> {
+                    categories.values().forEach(category -> category.setLastModified(modified));
+                    return categoryRepository.replaceAll(categories);
+                })
+                .doFinally(signal -> categories.keySet().forEach(categoryCache::invalidate)));
+    }
+
+    @Bean
+    WriteBehindBuffer<Vendor> vendorWriteBehind(WriteBehindProperties properties, VendorRepository vendorRepository,
+                                                ReactiveReadThroughCache<Vendor> vendorCache, CollectionStamp vendorStamp,
+                                                VendorSummaries vendorSummaries) {
+        return new WriteBehindBuffer<>(properties, vendors -> vendorStamp.write(modified -> {
+                    vendors.values().forEach(vendor -> vendor.setLastModified(modified));
+                    return vendorRepository.replaceAll(vendors);
+                })
+                .doFinally(signal -> vendors.keySet().forEach(vendorCache::invalidate))
+                .thenMany(Flux.fromIterable(vendors.entrySet()))
+                .concatMap(vendor -> vendorSummaries.written(vendor.getKey(), vendor.getValue()))
+                .then());
+    }
+}
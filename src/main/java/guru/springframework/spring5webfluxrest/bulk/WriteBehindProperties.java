@@ -0,0 +1,51 @@
+package guru.springframework.spring5webfluxrest.bulk;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties("api.write-behind")
+public class WriteBehindProperties {
+
+    /**
+     * Buffers unconditional PUTs and writes them in bulk, keeping only the last update of each document per flush.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Time an update stays in the buffer before it is flushed.
+     */
+    private Duration window = Duration.ofMillis(200);
+
+    /**
+     * Updates held at once; once reached, further PUTs are answered 503 until the next flush.
+     */
+    private int maxPending = 10_000;
+
+    /**
+     * When a buffered PUT is answered, unless the request asks for {@code Prefer: respond-async}.
+     */
+    private Durability durability = Durability.AFTER_FLUSH;
+
+    /**
+     * Longest wait for the last flush when the application stops.
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+
+    public enum Durability {
+
+        /**
+         * 204 once the update is written to Mongo.
+         */
+        AFTER_FLUSH,
+
+        /**
+         * 202 as soon as the update is buffered; it is lost if the node dies before the flush.
+         */
+        ON_BUFFER
+    }
+}
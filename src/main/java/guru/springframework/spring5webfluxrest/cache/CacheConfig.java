@@ -0,0 +1,43 @@
+package guru.springframework.spring5webfluxrest.cache;
+
+import guru.springframework.spring5webfluxrest.domain.Category;
+import guru.springframework.spring5webfluxrest.domain.Vendor;
+import guru.springframework.spring5webfluxrest.repositories.CategoryRepository;
+import guru.springframework.spring5webfluxrest.repositories.VendorRepository;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    ReactiveReadThroughCache<Category> categoryCache(CacheProperties cacheProperties, CategoryRepository categoryRepository) {
+        return new ReactiveReadThroughCache<>(cacheProperties.getCategories(), categoryRepository::findById);
+    }
+
+    @Bean
+    ReactiveReadThroughCache<Vendor> vendorCache(CacheProperties cacheProperties, VendorRepository vendorRepository) {
+        return new ReactiveReadThroughCache<>(cacheProperties.getVendors(), vendorRepository::findById);
+    }
+
+    @Bean
+    CollectionStamp categoryStamp(CacheProperties cacheProperties) {
+        return new CollectionStamp(cacheProperties.getCategories().getTimeToLive());
+    }
+
+    @Bean
+    CollectionStamp vendorStamp(CacheProperties cacheProperties) {
+        return new CollectionStamp(cacheProperties.getVendors().getTimeToLive());
+    }
+
+    @Bean
+    MeterBinder categoryCacheMetrics(ReactiveReadThroughCache<Category> categoryCache) {
+        return categoryCache.metrics("categories");
+    }
+
+    @Bean
+    MeterBinder vendorCacheMetrics(ReactiveReadThroughCache<Vendor> vendorCache) {
+        return vendorCache.metrics("vendors");
+    }
+}
@@ -0,0 +1,46 @@
+package guru.springframework.spring5webfluxrest.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties("api.cache")
+public class CacheProperties {
+
+    private Spec categories = new Spec(1_000, Duration.ofMinutes(10));
+
+    private Spec vendors = new Spec(10_000, Duration.ofMinutes(1));
+
+    /**
+     * Keeps the caches of every node coherent by applying the change streams of the category and vendor
+     * collections. Needs Mongo to run as a replica set.
+     */
+    private boolean changeStreams = false;
+
+    /**
+     * Keeps the JSON of the cached documents, so serving one again writes its bytes instead of encoding it.
+     */
+    private boolean preEncoded = true;
+
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Data
+    public static class Spec {
+
+        /**
+         * Maximum number of documents kept, least recently and frequently used ones are evicted first.
+         */
+        private long maximumSize;
+
+        /**
+         * Time after which a cached document is reloaded from Mongo.
+         */
+        private Duration timeToLive;
+    }
+}
@@ -0,0 +1,143 @@
+package guru.springframework.spring5webfluxrest.cache;
+
+import guru.springframework.spring5webfluxrest.domain.Category;
+import guru.springframework.spring5webfluxrest.domain.Vendor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Applies the change streams of the category and vendor collections to the local caches and collection stamps,
+ * so a write made through any node reaches the cache of every node. The resume token of the last applied event is kept to
+ * pick the stream up where it stopped after a reconnect; the caches are cleared whenever events may have been missed.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "api.cache.change-streams", havingValue = "true")
+public class ChangeStreamCacheSynchronizer {
+
+    private static final Duration FIRST_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final CollectionWatch<Category> categoryWatch;
+    private final CollectionWatch<Vendor> vendorWatch;
+    private final Disposable.Composite subscriptions = Disposables.composite();
+
+    public ChangeStreamCacheSynchronizer(ReactiveMongoTemplate reactiveMongoTemplate,
+                                         ReactiveReadThroughCache<Category> categoryCache,
+                                         ReactiveReadThroughCache<Vendor> vendorCache,
+                                         CollectionStamp categoryStamp,
+                                         CollectionStamp vendorStamp) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.categoryWatch = new CollectionWatch<>(Category.class, categoryCache, categoryStamp, Category::getId);
+        this.vendorWatch = new CollectionWatch<>(Vendor.class, vendorCache, vendorStamp, Vendor::getId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        subscriptions.add(categoryWatch.watch().subscribe());
+        subscriptions.add(vendorWatch.watch().subscribe());
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscriptions.dispose();
+    }
+
+    BsonValue resumeToken(Class<?> entityClass) {
+        return (entityClass == Category.class ? categoryWatch : vendorWatch).resumeToken.get();
+    }
+
+    private class CollectionWatch<T> {
+
+        private final Class<T> entityClass;
+        private final ReactiveReadThroughCache<T> cache;
+        private final CollectionStamp stamp;
+        private final Function<T, String> idExtractor;
+        private final AtomicReference<BsonValue> resumeToken = new AtomicReference<>();
+
+        CollectionWatch(Class<T> entityClass, ReactiveReadThroughCache<T> cache, CollectionStamp stamp,
+                        Function<T, String> idExtractor) {
+            this.entityClass = entityClass;
+            this.cache = cache;
+            this.stamp = stamp;
+            this.idExtractor = idExtractor;
+        }
+
+        Flux<ChangeStreamEvent<T>> watch() {
+            final String collectionName = reactiveMongoTemplate.getCollectionName(entityClass);
+            return Flux.defer(() -> {
+                final AtomicBoolean resumed = new AtomicBoolean(resumeToken.get() == null);
+                return reactiveMongoTemplate.changeStream(collectionName, options(), entityClass)
+                        .doOnNext(event -> {
+                            resumed.set(true);
+                            apply(event);
+                            resumeToken.set(event.getResumeToken());
+                        })
+                        .doOnError(e -> {
+                            log.warn("Change stream on {} failed, clearing its cache", collectionName, e);
+                            cache.invalidateAll();
+                            stamp.touch();
+                            if (!resumed.get()) {
+                                // the stored token could not be resumed from, start over from the current time
+                                resumeToken.set(null);
+                            }
+                        });
+            }).retryBackoff(Long.MAX_VALUE, FIRST_BACKOFF, MAX_BACKOFF);
+        }
+
+        private ChangeStreamOptions options() {
+            final ChangeStreamOptions.ChangeStreamOptionsBuilder options = ChangeStreamOptions.builder()
+                    .returnFullDocumentOnUpdate();
+            final BsonValue token = resumeToken.get();
+            if (token != null) {
+                options.resumeToken(token);
+            }
+            return options.build();
+        }
+
+        private void apply(ChangeStreamEvent<T> event) {
+            stamp.touch();
+            switch (event.getOperationType()) {
+                case INSERT:
+                case UPDATE:
+                case REPLACE:
+                    final T document = event.getBody();
+                    if (document != null) {
+                        cache.refresh(idExtractor.apply(document), document);
+                    } else {
+                        cache.invalidate(documentId(event));
+                    }
+                    break;
+                case DELETE:
+                    cache.invalidate(documentId(event));
+                    break;
+                default:
+                    cache.invalidateAll();
+            }
+        }
+
+        private String documentId(ChangeStreamEvent<T> event) {
+            final BsonDocument documentKey = event.getRaw().getDocumentKey();
+            final BsonValue id = documentKey.get("_id");
+            return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue();
+        }
+    }
+}
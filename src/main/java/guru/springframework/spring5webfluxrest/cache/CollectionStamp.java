@@ -0,0 +1,77 @@
+package guru.springframework.spring5webfluxrest.cache;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Modification stamp of a collection, in epoch milliseconds, kept in memory and advanced by every write made
+ * through this node, so an unchanged collection can be told apart without reading it. Each write also stamps the
+ * documents it touches, so the documents changed at or after a stamp can be queried.
+ * <p>
+ * While writes are in flight the stamp stays below the oldest of them, so nothing is missed by a client that
+ * asks for the changes since the stamp it was given. Writes made through other nodes are only seen when the
+ * change streams are applied; otherwise the stamp moves on at least once every {@code maxAge}, which bounds
+ * how stale a list answered as not modified can be, as the time to live does for the cached documents.
+ */
+public class CollectionStamp {
+
+    private final long maxAgeMillis;
+    private final AtomicLong latest = new AtomicLong(System.currentTimeMillis());
+    private final ConcurrentSkipListSet<Long> inFlight = new ConcurrentSkipListSet<>();
+
+    public CollectionStamp(Duration maxAge) {
+        this.maxAgeMillis = Math.max(1, maxAge.toMillis());
+    }
+
+    public long current() {
+        final long now = System.currentTimeMillis();
+        final long stamp = Math.max(latest.get(), now - now % maxAgeMillis);
+        final Long oldestInFlight = inFlight.ceiling(Long.MIN_VALUE);
+        return oldestInFlight == null ? stamp : Math.min(stamp, oldestInFlight - 1);
+    }
+
+    /**
+     * Runs a write stamped with the modification time its documents should carry.
+     */
+    public <T> Mono<T> write(Function<Instant, Mono<T>> write) {
+        return Mono.defer(() -> {
+            final long stamp = begin();
+            return write.apply(Instant.ofEpochMilli(stamp)).doFinally(signal -> end(stamp));
+        });
+    }
+
+    public <T> Flux<T> writeMany(Function<Instant, Flux<T>> write) {
+        return Flux.defer(() -> {
+            final long stamp = begin();
+            return write.apply(Instant.ofEpochMilli(stamp)).doFinally(signal -> end(stamp));
+        });
+    }
+
+    /**
+     * Moves the stamp on after a write that went through another node.
+     */
+    public void touch() {
+        next();
+    }
+
+    private long begin() {
+        final long stamp = next();
+        inFlight.add(stamp);
+        return stamp;
+    }
+
+    private void end(long stamp) {
+        next();
+        inFlight.remove(stamp);
+    }
+
+    private long next() {
+        return latest.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis()));
+    }
+}
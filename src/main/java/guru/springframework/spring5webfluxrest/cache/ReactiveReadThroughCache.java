@@ -0,0 +1,75 @@
+package guru.springframework.spring5webfluxrest.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Size and time bounded cache of documents by id, loading misses through the given reactive loader.
+ * Concurrent misses for the same id share a single load, and a load completing empty is not cached.
+ */
+public class ReactiveReadThroughCache<T> {
+
+    private final AsyncLoadingCache<String, T> cache;
+
+    public ReactiveReadThroughCache(CacheProperties.Spec spec, Function<String, Mono<T>> loader) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(spec.getMaximumSize())
+                .expireAfterWrite(spec.getTimeToLive().toNanos(), TimeUnit.NANOSECONDS)
+                .recordStats()
+                .buildAsync((AsyncCacheLoader<String, T>) (id, executor) -> loader.apply(id).toFuture());
+    }
+
+    public Mono<T> get(String id) {
+        return Mono.defer(() -> Mono.fromFuture(cache.get(id)));
+    }
+
+    /**
+     * The cached document, without loading it when it is missing or still being loaded.
+     */
+    public Mono<T> peek(String id) {
+        return Mono.defer(() -> {
+            final CompletableFuture<T> cached = cache.getIfPresent(id);
+            if (cached == null || !cached.isDone() || cached.isCompletedExceptionally()) {
+                return Mono.empty();
+            }
+            return Mono.justOrEmpty(cached.join());
+        });
+    }
+
+    /**
+     * Replaces a cached document with a newer version of it. Documents that are not cached are left out, so
+     * writes to cold documents do not evict hot ones, and a load still in flight is discarded as it may be stale.
+     */
+    public void refresh(String id, T document) {
+        final CompletableFuture<T> current = cache.getIfPresent(id);
+        if (current == null) {
+            return;
+        }
+        if (current.isDone()) {
+            cache.put(id, CompletableFuture.completedFuture(document));
+        } else {
+            invalidate(id);
+        }
+    }
+
+    public void invalidate(String id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    public MeterBinder metrics(String name) {
+        return new CaffeineCacheMetrics(cache.synchronous(), name, Tags.empty());
+    }
+}
@@ -0,0 +1,52 @@
+package guru.springframework.spring5webfluxrest.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import guru.springframework.spring5webfluxrest.cache.CacheProperties;
+import guru.springframework.spring5webfluxrest.domain.Category;
+import guru.springframework.spring5webfluxrest.domain.Vendor;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.util.MimeType;
+
+import java.util.Arrays;
+
+@Configuration
+public class CodecConfig {
+
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(APPLICATION_NDJSON_VALUE);
+
+    /**
+     * Binary JSON, read and written by the Smile codecs Spring registers once {@code jackson-dataformat-smile} is
+     * on the classpath.
+     */
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+
+    /**
+     * Registers {@code application/x-ndjson} next to {@code application/stream+json} as a streaming type,
+     * so a {@code Flux} is written one document per line as it is read from Mongo instead of being collected
+     * into a JSON array. Runs after Boot's Jackson customizer so it replaces the default Jackson codecs.
+     * With {@code api.cache.pre-encoded} the encoder also keeps the JSON of the cached documents.
+     */
+    @Bean
+    @Order(1)
+    CodecCustomizer ndjsonCodecCustomizer(ObjectMapper objectMapper, CacheProperties cacheProperties) {
+        return configurer -> {
+            final MimeType[] mimeTypes = {MediaType.APPLICATION_JSON, new MediaType("application", "*+json"), APPLICATION_NDJSON};
+            final Jackson2JsonEncoder encoder = cacheProperties.isPreEncoded()
+                    ? new PreEncodedJsonEncoder(objectMapper, Arrays.asList(Category.class, Vendor.class),
+                            cacheProperties.getCategories().getMaximumSize() + cacheProperties.getVendors().getMaximumSize(),
+                            mimeTypes)
+                    : new Jackson2JsonEncoder(objectMapper, mimeTypes);
+            encoder.setStreamingMediaTypes(Arrays.asList(MediaType.APPLICATION_STREAM_JSON, APPLICATION_NDJSON));
+            configurer.defaultCodecs().jackson2JsonEncoder(encoder);
+            configurer.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper, mimeTypes));
+        };
+    }
+}
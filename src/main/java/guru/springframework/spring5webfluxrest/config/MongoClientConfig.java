@@ -0,0 +1,33 @@
+package guru.springframework.spring5webfluxrest.config;
+
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool and timeouts of the reactive driver. The read preference of the client stays primary: only the reads of
+ * the repositories that may be served by secondaries ask for another one.
+ */
+@Configuration
+public class MongoClientConfig {
+
+    @Bean
+    MongoClientSettingsBuilderCustomizer mongoClientSettingsCustomizer(MongoClientProperties properties) {
+        final MongoClientProperties.Pool pool = properties.getPool();
+        return settings -> settings
+                .applyToConnectionPoolSettings(connectionPool -> connectionPool
+                        .maxSize(pool.getMaxSize())
+                        .minSize(pool.getMinSize())
+                        .maxWaitQueueSize(pool.getMaxWaitQueueSize())
+                        .maxWaitTime(pool.getMaxWaitTime().toMillis(), TimeUnit.MILLISECONDS)
+                        .maxConnectionIdleTime(pool.getMaxConnectionIdleTime().toMillis(), TimeUnit.MILLISECONDS)
+                        .maxConnectionLifeTime(pool.getMaxConnectionLifeTime().toMillis(), TimeUnit.MILLISECONDS))
+                .applyToSocketSettings(socket -> socket
+                        .connectTimeout((int) properties.getConnectTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                        .readTimeout((int) properties.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS))
+                .applyToClusterSettings(cluster -> cluster
+                        .serverSelectionTimeout(properties.getServerSelectionTimeout().toMillis(), TimeUnit.MILLISECONDS));
+    }
+}
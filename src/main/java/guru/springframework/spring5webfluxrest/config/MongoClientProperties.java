@@ -0,0 +1,77 @@
+package guru.springframework.spring5webfluxrest.config;
+
+import com.mongodb.ReadPreference;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+@Data
+@Component
+@ConfigurationProperties("api.mongo")
+public class MongoClientProperties {
+
+    private Pool pool = new Pool();
+
+    private Duration connectTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Longest wait for the reply to a command on an open connection, zero for none.
+     */
+    private Duration readTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Longest wait for a member suitable for an operation, a primary for writes, before the operation fails.
+     */
+    private Duration serverSelectionTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Read preference of the uncached list reads ({@code findAll}), such as {@code secondaryPreferred} to spread
+     * them over the members of the replica set. Every other read, including those loading the cache, and every
+     * write goes to the primary.
+     */
+    private String readPreference = "primary";
+
+    /**
+     * How far behind the primary a secondary may be to serve those reads, at least 90 seconds; none when unset.
+     */
+    private Duration maxStaleness;
+
+    public ReadPreference toReadPreference() {
+        if (maxStaleness == null) {
+            return ReadPreference.valueOf(readPreference);
+        }
+        return ReadPreference.valueOf(readPreference, Collections.emptyList(), maxStaleness.getSeconds(), TimeUnit.SECONDS);
+    }
+
+    @Data
+    public static class Pool {
+
+        /**
+         * Connections kept per member of the replica set, in use or idle.
+         */
+        private int maxSize = 100;
+
+        private int minSize = 0;
+
+        /**
+         * Operations allowed to wait for a connection once all of them are in use; more fail at once.
+         */
+        private int maxWaitQueueSize = 500;
+
+        /**
+         * Longest wait for a connection before the operation fails.
+         */
+        private Duration maxWaitTime = Duration.ofSeconds(2);
+
+        /**
+         * Idle time after which a connection is closed, zero for none.
+         */
+        private Duration maxConnectionIdleTime = Duration.ofMinutes(5);
+
+        private Duration maxConnectionLifeTime = Duration.ZERO;
+    }
+}
@@ -0,0 +1,45 @@
+package guru.springframework.spring5webfluxrest.config;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorResourceFactory;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * Event loops, buffers and connection limits of the Netty server, from {@code api.server}. The server gets its own
+ * event loops, sized by the properties, instead of the global reactor-netty ones. They run on the native epoll
+ * transport when it is available, on Linux, unless {@code -Dreactor.netty.native=false}.
+ */
+@Configuration
+public class NettyServerConfig {
+
+    static final String LOOP_PREFIX = "api-http";
+
+    @Bean
+    ReactorResourceFactory reactorServerResourceFactory(NettyServerProperties properties) {
+        final ReactorResourceFactory resourceFactory = new ReactorResourceFactory();
+        resourceFactory.setUseGlobalResources(false);
+        resourceFactory.setLoopResourcesSupplier(() -> LoopResources.create(LOOP_PREFIX,
+                properties.getSelectorThreads(), properties.getWorkerThreads(), true));
+        return resourceFactory;
+    }
+
+    @Bean
+    WebServerFactoryCustomizer<NettyReactiveWebServerFactory> nettyServerCustomizer(NettyServerProperties properties,
+                                                                                     ServerConnections serverConnections) {
+        return factory -> factory.addServerCustomizers(server -> server
+                .tcpConfiguration(tcp -> tcp
+                        .bootstrap(bootstrap -> {
+                            bootstrap.option(ChannelOption.SO_BACKLOG, properties.getBacklog());
+                            if (properties.isPooledAllocator()) {
+                                bootstrap.childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+                            }
+                            return bootstrap;
+                        })
+                        .observe(serverConnections)));
+    }
+}
@@ -0,0 +1,44 @@
+package guru.springframework.spring5webfluxrest.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties("api.server")
+public class NettyServerProperties {
+
+    /**
+     * Event loops accepting connections.
+     */
+    private int selectorThreads = 1;
+
+    /**
+     * Event loops serving the accepted connections, by default one per core and at least four.
+     */
+    private int workerThreads = LoopResources.DEFAULT_IO_WORKER_COUNT;
+
+    /**
+     * Reads and writes through pooled direct buffers whatever {@code io.netty.allocator.type} says.
+     */
+    private boolean pooledAllocator = true;
+
+    /**
+     * Connections accepted by the kernel and not yet by the server.
+     */
+    private int backlog = 1024;
+
+    /**
+     * Open connections served at once; more are closed as soon as they are accepted. Zero for no limit.
+     */
+    private int maxConnections = 10_000;
+
+    /**
+     * Time without a read or a write after which a connection is closed, zero for never.
+     */
+    private Duration idleTimeout = Duration.ofSeconds(60);
+}
@@ -0,0 +1,76 @@
+package guru.springframework.spring5webfluxrest.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.codec.json.Jackson2CodecSupport;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Jackson encoder that keeps the JSON of single documents of the given types, so a document served again as the
+ * same instance, as the read through caches do, is written by wrapping its bytes instead of being encoded again.
+ * The bytes are held by identity of the document and only for as long as the document is referenced elsewhere,
+ * which ties them to the lifetime of the cache entry. Lists, and documents encoded with a view or a charset other
+ * than UTF-8, go through Jackson as usual.
+ */
+public class PreEncodedJsonEncoder extends Jackson2JsonEncoder {
+
+    private final Set<Class<?>> documentTypes;
+    private final Cache<Object, byte[]> encoded;
+
+    public PreEncodedJsonEncoder(ObjectMapper objectMapper, Collection<Class<?>> documentTypes, long maximumSize,
+                                 MimeType... mimeTypes) {
+        super(objectMapper, mimeTypes);
+        this.documentTypes = new HashSet<>(documentTypes);
+        this.encoded = Caffeine.newBuilder()
+                .weakKeys()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory, ResolvableType elementType,
+                                   @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        if (inputStream instanceof Mono && isPreEncoded(elementType, mimeType, hints)) {
+            return Mono.from(inputStream)
+                    .map(document -> bufferFactory.wrap(encoded.get(document, this::writeValueAsBytes)))
+                    .flux();
+        }
+        return super.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+    }
+
+    long preEncodedCount() {
+        encoded.cleanUp();
+        return encoded.estimatedSize();
+    }
+
+    private boolean isPreEncoded(ResolvableType elementType, @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        return documentTypes.contains(elementType.resolve())
+                && (mimeType == null || mimeType.getCharset() == null || StandardCharsets.UTF_8.equals(mimeType.getCharset()))
+                && (hints == null || !hints.containsKey(Jackson2CodecSupport.JSON_VIEW_HINT));
+    }
+
+    private byte[] writeValueAsBytes(Object document) {
+        try {
+            return getObjectMapper().writeValueAsBytes(document);
+        } catch (JsonProcessingException e) {
+            throw new EncodingException("JSON encoding error: " + e.getOriginalMessage(), e);
+        }
+    }
+}
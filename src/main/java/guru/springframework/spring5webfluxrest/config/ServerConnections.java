@@ -0,0 +1,114 @@
+package guru.springframework.spring5webfluxrest.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ServerChannel;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import org.springframework.stereotype.Component;
+import reactor.netty.Connection;
+import reactor.netty.ConnectionObserver;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the connections of the HTTP server within {@code api.server.max-connections} and closes those idle for
+ * {@code api.server.idle-timeout}. Only reads and writes count as activity, so a long streamed response keeps its
+ * connection open.
+ */
+@Component
+public class ServerConnections implements ConnectionObserver, MeterBinder {
+
+    static final String METRIC_NAME = "reactor.netty.server.connections";
+    static final String ACTIVE_METRIC_NAME = "reactor.netty.server.connections.active";
+
+    static final String IDLE_HANDLER = "api.idleConnection";
+
+    private final NettyServerProperties properties;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder idleClosed = new LongAdder();
+
+    public ServerConnections(NettyServerProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public void onStateChange(Connection connection, State newState) {
+        // once per connection, before the first request, where later states repeat for every request; HTTP/2
+        // streams are channels of their own, connected again under the connection
+        if (newState == State.CONNECTED && connection.channel().parent() instanceof ServerChannel) {
+            accept(connection.channel());
+        }
+    }
+
+    void accept(Channel channel) {
+        if (!tryOpen()) {
+            rejected.increment();
+            channel.close();
+            return;
+        }
+        accepted.increment();
+        channel.closeFuture().addListener(closed -> active.decrementAndGet());
+        final long idleTimeout = properties.getIdleTimeout().toMillis();
+        if (idleTimeout > 0) {
+            channel.pipeline().addFirst(IDLE_HANDLER, new IdleConnectionHandler(idleTimeout));
+        }
+    }
+
+    public int active() {
+        return active.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindOutcome(registry, "accepted", accepted);
+        bindOutcome(registry, "rejected", rejected);
+        bindOutcome(registry, "idle_closed", idleClosed);
+        Gauge.builder(ACTIVE_METRIC_NAME, active, AtomicInteger::get)
+                .description("Connections open on the HTTP server")
+                .register(registry);
+    }
+
+    private boolean tryOpen() {
+        final int max = properties.getMaxConnections();
+        while (true) {
+            final int current = active.get();
+            if (max > 0 && current >= max) {
+                return false;
+            }
+            if (active.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private static void bindOutcome(MeterRegistry registry, String outcome, LongAdder count) {
+        FunctionCounter.builder(METRIC_NAME, count, LongAdder::sum)
+                .description("Connections accepted, rejected over the limit or closed when idle by the HTTP server")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private class IdleConnectionHandler extends IdleStateHandler {
+
+        IdleConnectionHandler(long idleTimeout) {
+            super(0L, 0L, idleTimeout, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        protected void channelIdle(ChannelHandlerContext ctx, IdleStateEvent evt) {
+            idleClosed.increment();
+            // through the whole pipeline, so an HTTP/2 connection is closed with a GOAWAY
+            ctx.channel().close();
+        }
+    }
+}
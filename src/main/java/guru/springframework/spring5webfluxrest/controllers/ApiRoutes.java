@@ -0,0 +1,108 @@
+package guru.springframework.spring5webfluxrest.controllers;
+
+import guru.springframework.spring5webfluxrest.config.CodecConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.NotAcceptableStatusException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.PATCH;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RequestPredicates.PUT;
+import static org.springframework.web.reactive.function.server.RequestPredicates.queryParam;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Serves the API through router and handler functions instead of the annotated controllers when
+ * {@code api.routing=functional}. Paths, status codes and bodies are the same either way.
+ */
+@Configuration
+@ConditionalOnProperty(name = "api.routing", havingValue = "functional")
+public class ApiRoutes {
+
+    static final String VENDORS = "/api/v1/vendors";
+    static final String CATEGORIES = "/api/v1/categories";
+
+    private static final List<MediaType> LIST_MEDIA_TYPES = Arrays.asList(MediaType.APPLICATION_JSON,
+            MediaType.APPLICATION_STREAM_JSON, CodecConfig.APPLICATION_NDJSON, MediaType.TEXT_EVENT_STREAM,
+            CodecConfig.APPLICATION_SMILE);
+
+    @Bean
+    RouterFunction<ServerResponse> vendorRoutes(VendorHandler vendorHandler) {
+        return route(GET(VENDORS).and(queryParam("limit", limit -> true)), vendorHandler::getPage)
+                .andRoute(GET(VENDORS).and(queryParam("categoryId", categoryId -> true)), vendorHandler::getByCategory)
+                .andRoute(GET(VENDORS), vendorHandler::getAll)
+                .andRoute(GET(VENDORS + "/search"), vendorHandler::searchVendors)
+                .andRoute(GET(VENDORS + "/export"), vendorHandler::exportVendors)
+                .andRoute(GET(VENDORS + "/by-category"), vendorHandler::summarizeByCategory)
+                .andRoute(GET(VENDORS + "/summary/initials"), vendorHandler::countByInitial)
+                .andRoute(GET(VENDORS + "/summary/categories"), vendorHandler::countByCategory)
+                .andRoute(POST(VENDORS + "/summary/rebuild"), vendorHandler::rebuildSummaries)
+                .andRoute(GET(VENDORS + "/{id}"), vendorHandler::getById)
+                .andRoute(POST(VENDORS), vendorHandler::createVendor)
+                .andRoute(POST(VENDORS + "/bulk"), vendorHandler::bulkCreateVendors)
+                .andRoute(POST(VENDORS + "/sync"), vendorHandler::syncVendors)
+                .andRoute(PUT(VENDORS + "/{id}"), vendorHandler::updateVendor)
+                .andRoute(PATCH(VENDORS + "/{id}"), vendorHandler::patchVendor);
+    }
+
+    @Bean
+    RouterFunction<ServerResponse> categoryRoutes(CategoryHandler categoryHandler) {
+        return route(GET(CATEGORIES).and(queryParam("limit", limit -> true)), categoryHandler::getPage)
+                .andRoute(GET(CATEGORIES), categoryHandler::getAll)
+                .andRoute(GET(CATEGORIES + "/search"), categoryHandler::searchCategories)
+                .andRoute(GET(CATEGORIES + "/export"), categoryHandler::exportCategories)
+                .andRoute(GET(CATEGORIES + "/{id}"), categoryHandler::getById)
+                .andRoute(POST(CATEGORIES), categoryHandler::createCategory)
+                .andRoute(POST(CATEGORIES + "/bulk"), categoryHandler::bulkCreateCategories)
+                .andRoute(POST(CATEGORIES + "/sync"), categoryHandler::syncCategories)
+                .andRoute(PUT(CATEGORIES + "/{id}"), categoryHandler::updateCategory)
+                .andRoute(PATCH(CATEGORIES + "/{id}"), categoryHandler::patchCategory);
+    }
+
+    /**
+     * Handler functions do not negotiate the response type from the Accept header, so the list endpoints pick
+     * it here, letting clients stream the lists as the annotated controllers do.
+     */
+    static MediaType listMediaType(ServerRequest request) {
+        final List<MediaType> accepted = new ArrayList<>(request.headers().accept());
+        if (accepted.isEmpty()) {
+            return MediaType.APPLICATION_JSON;
+        }
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType acceptable : accepted) {
+            for (MediaType candidate : LIST_MEDIA_TYPES) {
+                if (acceptable.isCompatibleWith(candidate)) {
+                    return candidate;
+                }
+            }
+        }
+        throw new NotAcceptableStatusException(LIST_MEDIA_TYPES);
+    }
+
+    /**
+     * Single documents and pages are answered in Smile when the client prefers it, and in JSON otherwise.
+     */
+    static MediaType documentMediaType(ServerRequest request) {
+        final List<MediaType> accepted = new ArrayList<>(request.headers().accept());
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType acceptable : accepted) {
+            if (acceptable.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return MediaType.APPLICATION_JSON;
+            }
+            if (acceptable.isCompatibleWith(CodecConfig.APPLICATION_SMILE)) {
+                return CodecConfig.APPLICATION_SMILE;
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+}
@@ -0,0 +1,69 @@
+package guru.springframework.spring5webfluxrest.controllers;
+
+import guru.springframework.spring5webfluxrest.bulk.WriteBehindBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+
+/**
+ * Answers to the updates taken by a write-behind buffer: a 202 as soon as the update is buffered, when the client
+ * sends {@code Prefer: respond-async} or the buffer acknowledges on buffering, otherwise a 204 once it is written.
+ * Neither carries the document, whose version is only known to Mongo. A full buffer answers 503 with a Retry-After
+ * until its next flush, since writing the update directly could be overwritten by an older one still buffered.
+ */
+final class BufferedWrites {
+
+    static final String PREFER_HEADER = "Prefer";
+    static final String PREFERENCE_APPLIED_HEADER = "Preference-Applied";
+    static final String RESPOND_ASYNC = "respond-async";
+
+    private BufferedWrites() {
+    }
+
+    static <T> Mono<ResponseEntity<T>> accepted(Mono<Void> written, HttpHeaders requestHeaders, WriteBehindBuffer<?> buffer) {
+        if (prefersAsync(requestHeaders)) {
+            return Mono.just(ResponseEntity.accepted().header(PREFERENCE_APPLIED_HEADER, RESPOND_ASYNC).build());
+        }
+        if (buffer.acknowledgesOnBuffer()) {
+            return Mono.just(ResponseEntity.accepted().build());
+        }
+        return written.then(Mono.fromCallable(() -> ResponseEntity.status(HttpStatus.NO_CONTENT).build()));
+    }
+
+    static Mono<ServerResponse> acceptedResponse(Mono<Void> written, HttpHeaders requestHeaders, WriteBehindBuffer<?> buffer) {
+        if (prefersAsync(requestHeaders)) {
+            return ServerResponse.accepted().header(PREFERENCE_APPLIED_HEADER, RESPOND_ASYNC).build();
+        }
+        if (buffer.acknowledgesOnBuffer()) {
+            return ServerResponse.accepted().build();
+        }
+        return written.then(ServerResponse.noContent().build());
+    }
+
+    static <T> Mono<ResponseEntity<T>> full(WriteBehindBuffer<?> buffer) {
+        return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(buffer))
+                .build());
+    }
+
+    static Mono<ServerResponse> fullResponse(WriteBehindBuffer<?> buffer) {
+        return ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(buffer))
+                .build();
+    }
+
+    private static String retryAfterSeconds(WriteBehindBuffer<?> buffer) {
+        final long millis = buffer.retryAfter().toMillis();
+        return Long.toString(Math.max(1L, (millis + 999L) / 1000L));
+    }
+
+    private static boolean prefersAsync(HttpHeaders requestHeaders) {
+        return requestHeaders.getValuesAsList(PREFER_HEADER).stream()
+                .flatMap(preferences -> Arrays.stream(preferences.split(",")))
+                .anyMatch(preference -> preference.split(";")[0].trim().equalsIgnoreCase(RESPOND_ASYNC));
+    }
+}
@@ -1,51 +1,166 @@
 package guru.springframework.spring5webfluxrest.controllers;
 
+import guru.springframework.spring5webfluxrest.bulk.BatchResult;
+import guru.springframework.spring5webfluxrest.bulk.BulkIngester;
+import guru.springframework.spring5webfluxrest.bulk.SnapshotSync;
+import guru.springframework.spring5webfluxrest.bulk.SyncResult;
+import guru.springframework.spring5webfluxrest.bulk.WriteBehindBuffer;
+import guru.springframework.spring5webfluxrest.cache.CollectionStamp;
+import guru.springframework.spring5webfluxrest.cache.ReactiveReadThroughCache;
+import guru.springframework.spring5webfluxrest.config.CodecConfig;
 import guru.springframework.spring5webfluxrest.domain.Category;
+import guru.springframework.spring5webfluxrest.export.NdjsonExporter;
 import guru.springframework.spring5webfluxrest.repositories.CategoryRepository;
+import guru.springframework.spring5webfluxrest.repositories.VersionedDocuments;
 import lombok.AllArgsConstructor;
 import org.reactivestreams.Publisher;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @AllArgsConstructor
 @RestController
+@ConditionalOnProperty(name = "api.routing", havingValue = "annotated", matchIfMissing = true)
 @RequestMapping("/api/v1/categories")
 public class CategoryController {
 
     private final CategoryRepository categoryRepository;
+    private final ReactiveReadThroughCache<Category> categoryCache;
+    private final CollectionStamp categoryStamp;
+    private final BulkIngester bulkIngester;
+    private final NdjsonExporter ndjsonExporter;
+    private final WriteBehindBuffer<Category> categoryWriteBehind;
+    private final SnapshotSync snapshotSync;
 
+    /**
+     * The whole collection or, with {@code since}, the documents changed at or after that modification stamp.
+     * A client holding the current stamp of the collection gets a 304 without Mongo being queried.
+     */
     @GetMapping
-    Flux<Category> list() {
-        return categoryRepository.findAll();
+    ResponseEntity<Flux<Category>> list(@RequestParam(required = false) String since, @RequestHeader HttpHeaders headers) {
+        final long stamp = categoryStamp.current();
+        if (ConditionalRequests.collectionNotModified(headers, stamp)) {
+            return ConditionalRequests.collectionNotModified(stamp);
+        }
+        return ResponseEntity.ok()
+                .headers(ConditionalRequests.collectionHeaders(stamp))
+                .body(since == null ? categoryRepository.findAll() : categoryRepository.findModifiedSince(ConditionalRequests.since(since)));
     }
 
+    @GetMapping(params = "limit")
+    Mono<ResponseEntity<List<Category>>> listPage(@RequestParam int limit, @RequestParam(required = false) String cursor) {
+        final int pageSize = PageCursor.limit(limit);
+        return categoryRepository.findPage(PageCursor.decode(cursor), pageSize)
+                .collectList()
+                .map(page -> PageCursor.toResponse(page, pageSize, Category::getId));
+    }
+
+    @GetMapping("/search")
+    Flux<Category> searchCategories(@RequestParam String prefix, @RequestParam(required = false) Integer limit) {
+        return categoryRepository.searchByDescription(SearchParams.prefix(prefix), SearchParams.limit(limit));
+    }
+
+    /**
+     * Every category in id order as newline delimited JSON, read from Mongo only as fast as the client takes it.
+     * An interrupted export picks up where it stopped with the id of the last category received as {@code after}.
+     */
+    @GetMapping(value = "/export", produces = CodecConfig.APPLICATION_NDJSON_VALUE)
+    Flux<DataBuffer> exportCategories(@RequestParam(required = false) String after,
+                                 @RequestParam(required = false) String fields,
+                                 @RequestParam(required = false) Integer batchSize,
+                                 ServerHttpResponse response) {
+        return ndjsonExporter.write(categoryRepository.export(after,
+                ndjsonExporter.fields(fields, NdjsonExporter.CATEGORY_FIELDS), ndjsonExporter.batchSize(batchSize)),
+                response.bufferFactory());
+    }
+
+    /**
+     * A client sending the ETag it holds gets a 304 when the version is unchanged, decided from the cached
+     * document or else from a query reading only the version.
+     */
     @GetMapping("/{id}")
-    Mono<Category> getById(@PathVariable String id) {
-        return categoryRepository.findById(id);
+    Mono<ResponseEntity<Category>> getById(@PathVariable String id, @RequestHeader HttpHeaders headers) {
+        if (headers.getIfNoneMatch().isEmpty()) {
+            return categoryCache.get(id).map(category -> ConditionalRequests.ok(category, category.getVersion()));
+        }
+        return categoryCache.peek(id)
+                .map(category -> VersionedDocuments.versionOf(category.getVersion()))
+                .switchIfEmpty(categoryRepository.findVersion(id))
+                .flatMap(version -> ConditionalRequests.notModified(headers, version)
+                        ? Mono.just(ConditionalRequests.<Category>notModified(version))
+                        : categoryCache.get(id).map(category -> ConditionalRequests.ok(category, category.getVersion())));
     }
 
     @ResponseStatus(HttpStatus.CREATED)
     @PostMapping
     Mono<Void> createCategory(@RequestBody Publisher<Category> categoryStream) {
-        return categoryRepository.saveAll(categoryStream).then();
+        return categoryStamp.writeMany(modified -> categoryRepository.saveAll(Flux.from(categoryStream)
+                        .doOnNext(category -> category.setLastModified(modified))))
+                .doOnNext(saved -> categoryCache.invalidate(saved.getId()))
+                .then();
     }
 
+    @ResponseStatus(HttpStatus.CREATED)
+    @PostMapping("/bulk")
+    Flux<BatchResult> bulkCreateCategories(@RequestBody Flux<Category> categoryStream) {
+        return categoryStamp.writeMany(modified -> bulkIngester.ingest(
+                categoryStream.doOnNext(category -> category.setLastModified(modified)), categoryRepository::insertUnordered));
+    }
+
+    /**
+     * Makes the categories with an external id match a full snapshot of the upstream master data, writing only
+     * what changed. Unless {@code delete} is false, the categories missing from the snapshot are deleted.
+     */
+    @PostMapping("/sync")
+    Mono<SyncResult> syncCategories(@RequestBody Flux<Category> snapshot, @RequestParam(defaultValue = "true") boolean delete) {
+        return categoryStamp.write(modified -> snapshotSync.sync(snapshot.doOnNext(category -> category.setLastModified(modified)),
+                categoryRepository, delete, this::invalidate, this::invalidate));
+    }
+
+    /**
+     * With write-behind on, an unconditional update is buffered and written in bulk along with the others. A
+     * conditional one waits for the buffered updates of the category to be written first.
+     */
     @PutMapping("/{id}")
-    Mono<Category> updateCategory(@PathVariable String id, @RequestBody Category category) {
-        category.setId(id);
-        return categoryRepository.save(category);
+    Mono<ResponseEntity<Category>> updateCategory(@PathVariable String id, @RequestBody Category category, @RequestHeader HttpHeaders headers) {
+        final Long expectedVersion = ConditionalRequests.expectedVersion(headers);
+        if (expectedVersion == null && categoryWriteBehind.isEnabled()) {
+            final Mono<Void> buffered = categoryWriteBehind.buffer(id, category);
+            return buffered == null
+                    ? BufferedWrites.full(categoryWriteBehind)
+                    : BufferedWrites.accepted(buffered, headers, categoryWriteBehind);
+        }
+        return categoryWriteBehind.written(id).then(categoryStamp.write(modified -> {
+                    category.setLastModified(modified);
+                    return categoryRepository.replace(id, category, expectedVersion);
+                }))
+                .switchIfEmpty(ConditionalRequests.unlessUnconditional(expectedVersion))
+                .map(saved -> ConditionalRequests.ok(saved, saved.getVersion()))
+                .doFinally(signal -> categoryCache.invalidate(id));
     }
 
     @PatchMapping("/{id}")
-    Mono<Category> patchCategory(@PathVariable String id, @RequestBody Category category) {
-        Category foundCategory = categoryRepository.findById(id).block();
-        if(!foundCategory.getDescription().equals(category.getDescription())) {
-            foundCategory.setDescription(category.getDescription());
-            return categoryRepository.save(foundCategory);
-        }
-        return Mono.just(foundCategory);
+    Mono<ResponseEntity<Category>> patchCategory(@PathVariable String id, @RequestBody Category category, @RequestHeader HttpHeaders headers) {
+        final Long expectedVersion = ConditionalRequests.expectedVersion(headers);
+        return categoryWriteBehind.written(id).then(categoryStamp.write(modified -> {
+                    category.setLastModified(modified);
+                    return categoryRepository.patch(id, category, expectedVersion);
+                }))
+                .switchIfEmpty(ConditionalRequests.unlessUnconditional(expectedVersion))
+                .map(patched -> ConditionalRequests.ok(patched, patched.getVersion()))
+                .doFinally(signal -> categoryCache.invalidate(id));
     }
 
+    private Mono<Void> invalidate(Category category) {
+        categoryCache.invalidate(category.getId());
+        return Mono.empty();
+    }
 }
@@ -0,0 +1,174 @@
+package guru.springframework.spring5webfluxrest.controllers;
+
+import guru.springframework.spring5webfluxrest.bulk.BatchResult;
+import guru.springframework.spring5webfluxrest.bulk.BulkIngester;
+import guru.springframework.spring5webfluxrest.bulk.SnapshotSync;
+import guru.springframework.spring5webfluxrest.bulk.SyncResult;
+import guru.springframework.spring5webfluxrest.bulk.WriteBehindBuffer;
+import guru.springframework.spring5webfluxrest.cache.CollectionStamp;
+import guru.springframework.spring5webfluxrest.cache.ReactiveReadThroughCache;
+import guru.springframework.spring5webfluxrest.config.CodecConfig;
+import guru.springframework.spring5webfluxrest.domain.Category;
+import guru.springframework.spring5webfluxrest.export.NdjsonExporter;
+import guru.springframework.spring5webfluxrest.repositories.CategoryRepository;
+import guru.springframework.spring5webfluxrest.repositories.VersionedDocuments;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Functional counterpart of {@link CategoryController}, routed by {@link ApiRoutes}.
+ */
+@AllArgsConstructor
+@Component
+@ConditionalOnProperty(name = "api.routing", havingValue = "functional")
+public class CategoryHandler {
+
+    private final CategoryRepository categoryRepository;
+    private final ReactiveReadThroughCache<Category> categoryCache;
+    private final CollectionStamp categoryStamp;
+    private final BulkIngester bulkIngester;
+    private final NdjsonExporter ndjsonExporter;
+    private final WriteBehindBuffer<Category> categoryWriteBehind;
+    private final SnapshotSync snapshotSync;
+
+    Mono<ServerResponse> getAll(ServerRequest request) {
+        final MediaType mediaType = ApiRoutes.listMediaType(request);
+        final long stamp = categoryStamp.current();
+        if (ConditionalRequests.collectionNotModified(request.headers().asHttpHeaders(), stamp)) {
+            return ConditionalRequests.collectionNotModifiedResponse(stamp);
+        }
+        final Flux<Category> categories = request.queryParam("since")
+                .map(since -> categoryRepository.findModifiedSince(ConditionalRequests.since(since)))
+                .orElseGet(categoryRepository::findAll);
+        return ServerResponse.ok()
+                .headers(headers -> headers.addAll(ConditionalRequests.collectionHeaders(stamp)))
+                .contentType(mediaType)
+                .body(categories, Category.class);
+    }
+
+    Mono<ServerResponse> getPage(ServerRequest request) {
+        final int pageSize = PageCursor.limit(request.queryParam("limit").orElse(""));
+        return categoryRepository.findPage(PageCursor.decode(request.queryParam("cursor").orElse(null)), pageSize)
+                .collectList()
+                .flatMap(page -> PageCursor.toServerResponse(page, pageSize, Category::getId, ApiRoutes.documentMediaType(request)));
+    }
+
+    Mono<ServerResponse> searchCategories(ServerRequest request) {
+        final String prefix = SearchParams.prefix(request.queryParam("prefix").orElse(null));
+        final int limit = SearchParams.limit(request.queryParam("limit").orElse(null));
+        return ServerResponse.ok()
+                .contentType(ApiRoutes.listMediaType(request))
+                .body(categoryRepository.searchByDescription(prefix, limit), Category.class);
+    }
+
+    Mono<ServerResponse> exportCategories(ServerRequest request) {
+        final List<String> fields = ndjsonExporter.fields(request.queryParam("fields").orElse(null), NdjsonExporter.CATEGORY_FIELDS);
+        final int batchSize = ndjsonExporter.batchSize(request.queryParam("batchSize").orElse(null));
+        return ServerResponse.ok()
+                .contentType(CodecConfig.APPLICATION_NDJSON)
+                .body(BodyInserters.fromDataBuffers(ndjsonExporter.write(
+                        categoryRepository.export(request.queryParam("after").orElse(null), fields, batchSize),
+                        request.exchange().getResponse().bufferFactory())));
+    }
+
+    Mono<ServerResponse> getById(ServerRequest request) {
+        final String id = request.pathVariable("id");
+        final MediaType mediaType = ApiRoutes.documentMediaType(request);
+        final HttpHeaders headers = request.headers().asHttpHeaders();
+        if (headers.getIfNoneMatch().isEmpty()) {
+            return categoryCache.get(id)
+                    .flatMap(category -> ConditionalRequests.okResponse(category, category.getVersion(), mediaType))
+                    .switchIfEmpty(ServerResponse.ok().build());
+        }
+        return categoryCache.peek(id)
+                .map(category -> VersionedDocuments.versionOf(category.getVersion()))
+                .switchIfEmpty(categoryRepository.findVersion(id))
+                .flatMap(version -> ConditionalRequests.notModified(headers, version)
+                        ? ConditionalRequests.notModifiedResponse(version)
+                        : categoryCache.get(id).flatMap(category -> ConditionalRequests.okResponse(category, category.getVersion(), mediaType)))
+                .switchIfEmpty(ServerResponse.ok().build());
+    }
+
+    Mono<ServerResponse> createCategory(ServerRequest request) {
+        return ServerResponse.status(HttpStatus.CREATED)
+                .build(categoryStamp.writeMany(modified -> categoryRepository.saveAll(request.bodyToFlux(Category.class)
+                                .doOnNext(category -> category.setLastModified(modified))))
+                        .doOnNext(saved -> categoryCache.invalidate(saved.getId()))
+                        .then());
+    }
+
+    Mono<ServerResponse> bulkCreateCategories(ServerRequest request) {
+        return ServerResponse.status(HttpStatus.CREATED)
+                .body(categoryStamp.writeMany(modified -> bulkIngester.ingest(
+                        request.bodyToFlux(Category.class).doOnNext(category -> category.setLastModified(modified)),
+                        categoryRepository::insertUnordered)), BatchResult.class);
+    }
+
+    Mono<ServerResponse> syncCategories(ServerRequest request) {
+        final boolean delete = request.queryParam("delete").map(Boolean::parseBoolean).orElse(true);
+        return ServerResponse.ok()
+                .contentType(ApiRoutes.documentMediaType(request))
+                .body(categoryStamp.write(modified -> snapshotSync.sync(request.bodyToFlux(Category.class)
+                                .doOnNext(category -> category.setLastModified(modified)),
+                        categoryRepository, delete, this::invalidate, this::invalidate)), SyncResult.class);
+    }
+
+    Mono<ServerResponse> updateCategory(ServerRequest request) {
+        final String id = request.pathVariable("id");
+        final MediaType mediaType = ApiRoutes.documentMediaType(request);
+        final Long expectedVersion = ConditionalRequests.expectedVersion(request.headers().asHttpHeaders());
+        return body(request)
+                .flatMap(category -> {
+                    if (expectedVersion == null && categoryWriteBehind.isEnabled()) {
+                        final Mono<Void> buffered = categoryWriteBehind.buffer(id, category);
+                        return buffered == null
+                                ? BufferedWrites.fullResponse(categoryWriteBehind)
+                                : BufferedWrites.acceptedResponse(buffered, request.headers().asHttpHeaders(), categoryWriteBehind);
+                    }
+                    return categoryWriteBehind.written(id).then(categoryStamp.write(modified -> {
+                                category.setLastModified(modified);
+                                return categoryRepository.replace(id, category, expectedVersion);
+                            }))
+                            .switchIfEmpty(ConditionalRequests.unlessUnconditional(expectedVersion))
+                            .doFinally(signal -> categoryCache.invalidate(id))
+                            .flatMap(saved -> ConditionalRequests.okResponse(saved, saved.getVersion(), mediaType));
+                });
+    }
+
+    Mono<ServerResponse> patchCategory(ServerRequest request) {
+        final String id = request.pathVariable("id");
+        final MediaType mediaType = ApiRoutes.documentMediaType(request);
+        final Long expectedVersion = ConditionalRequests.expectedVersion(request.headers().asHttpHeaders());
+        return body(request)
+                .flatMap(category -> categoryWriteBehind.written(id).then(categoryStamp.write(modified -> {
+                            category.setLastModified(modified);
+                            return categoryRepository.patch(id, category, expectedVersion);
+                        }))
+                        .switchIfEmpty(ConditionalRequests.unlessUnconditional(expectedVersion))
+                        .doFinally(signal -> categoryCache.invalidate(id)))
+                .flatMap(patched -> ConditionalRequests.okResponse(patched, patched.getVersion(), mediaType))
+                .switchIfEmpty(ServerResponse.ok().build());
+    }
+
+    private Mono<Void> invalidate(Category category) {
+        categoryCache.invalidate(category.getId());
+        return Mono.empty();
+    }
+
+    private static Mono<Category> body(ServerRequest request) {
+        return request.bodyToMono(Category.class)
+                .switchIfEmpty(Mono.defer(() -> Mono.error(new ServerWebInputException("Request body is missing"))));
+    }
+}
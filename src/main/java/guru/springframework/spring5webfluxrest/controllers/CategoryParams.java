@@ -0,0 +1,58 @@
+package guru.springframework.spring5webfluxrest.controllers;
+
+import org.bson.types.ObjectId;
+import org.springframework.web.server.ServerWebInputException;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Validation of the parameters of the vendors by category endpoints. The number of vendors listed per category
+ * is always limited, so a large category never turns into a download of all its vendors.
+ */
+final class CategoryParams {
+
+    static final int DEFAULT_LISTED = 10;
+    static final int MAX_LISTED = 100;
+
+    private CategoryParams() {
+    }
+
+    static ObjectId categoryId(String categoryId) {
+        if (categoryId == null || !ObjectId.isValid(categoryId.trim())) {
+            throw new ServerWebInputException("Invalid categoryId " + categoryId);
+        }
+        return new ObjectId(categoryId.trim());
+    }
+
+    static List<ObjectId> categoryIds(List<String> categoryIds) {
+        return categoryIds.stream()
+                .map(CategoryParams::categoryId)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Vendors listed per category, zero asking for the counts only.
+     */
+    static int listed(Integer requested) {
+        if (requested == null) {
+            return DEFAULT_LISTED;
+        }
+        if (requested < 0) {
+            throw new ServerWebInputException("vendors must not be negative");
+        }
+        return Math.min(requested, MAX_LISTED);
+    }
+
+    static int listed(String requested) {
+        if (requested == null) {
+            return DEFAULT_LISTED;
+        }
+        try {
+            return listed(Integer.valueOf(requested));
+        } catch (NumberFormatException e) {
+            throw new ServerWebInputException("vendors must be a number");
+        }
+    }
+}
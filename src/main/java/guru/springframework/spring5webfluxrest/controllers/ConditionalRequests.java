@@ -0,0 +1,135 @@
+package guru.springframework.spring5webfluxrest.controllers;
+
+import guru.springframework.spring5webfluxrest.repositories.VersionedDocuments;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Strong entity tags built from the document versions, weak ones built from the collection modification stamps,
+ * and the {@code If-None-Match} and {@code If-Match} checks against them.
+ */
+final class ConditionalRequests {
+
+    static final String MODIFICATION_STAMP_HEADER = "X-Modification-Stamp";
+
+    private ConditionalRequests() {
+    }
+
+    static String etag(Long version) {
+        return "\"" + VersionedDocuments.versionOf(version) + "\"";
+    }
+
+    static <T> ResponseEntity<T> ok(T body, Long version) {
+        return ResponseEntity.ok().eTag(etag(version)).body(body);
+    }
+
+    static <T> ResponseEntity<T> notModified(Long version) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag(version)).build();
+    }
+
+    static Mono<ServerResponse> okResponse(Object body, Long version, MediaType mediaType) {
+        return ServerResponse.ok().eTag(etag(version)).contentType(mediaType).syncBody(body);
+    }
+
+    static Mono<ServerResponse> notModifiedResponse(Long version) {
+        return ServerResponse.status(HttpStatus.NOT_MODIFIED).eTag(etag(version)).build();
+    }
+
+    /**
+     * Whether the client already holds this version, so a GET can be answered with 304.
+     */
+    static boolean notModified(HttpHeaders requestHeaders, Long version) {
+        return matchesIfNoneMatch(requestHeaders, etag(version));
+    }
+
+    /**
+     * A list carries the stamp of its collection as a weak entity tag, the same for every media type, and as
+     * {@link #MODIFICATION_STAMP_HEADER} to be sent back as {@code since}. {@code Last-Modified} is informative
+     * only: its one second precision cannot tell apart writes made within the second that was served.
+     */
+    static HttpHeaders collectionHeaders(long stamp) {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setETag(collectionEtag(stamp));
+        headers.setLastModified(stamp);
+        headers.set(MODIFICATION_STAMP_HEADER, Long.toString(stamp));
+        return headers;
+    }
+
+    static boolean collectionNotModified(HttpHeaders requestHeaders, long stamp) {
+        return matchesIfNoneMatch(requestHeaders, collectionEtag(stamp));
+    }
+
+    static <T> ResponseEntity<T> collectionNotModified(long stamp) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(collectionHeaders(stamp)).build();
+    }
+
+    static Mono<ServerResponse> collectionNotModifiedResponse(long stamp) {
+        return ServerResponse.status(HttpStatus.NOT_MODIFIED).headers(headers -> headers.addAll(collectionHeaders(stamp))).build();
+    }
+
+    /**
+     * The {@code since} parameter of a list, a modification stamp given by an earlier response.
+     */
+    static Instant since(String stamp) {
+        try {
+            return Instant.ofEpochMilli(Long.parseLong(stamp));
+        } catch (NumberFormatException e) {
+            throw new ServerWebInputException("since must be a modification stamp");
+        }
+    }
+
+    /**
+     * The version an update is conditioned on through {@code If-Match}, or null when it is not conditional.
+     * A tag that is not one of ours can never match, and is rejected right away.
+     */
+    static Long expectedVersion(HttpHeaders requestHeaders) {
+        final List<String> ifMatch = requestHeaders.getIfMatch();
+        if (ifMatch.isEmpty() || ifMatch.contains("*")) {
+            return null;
+        }
+        if (ifMatch.size() == 1) {
+            final String tag = ifMatch.get(0);
+            if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                try {
+                    return Long.valueOf(tag.substring(1, tag.length() - 1));
+                } catch (NumberFormatException e) {
+                    // not a version, falls through to the rejection
+                }
+            }
+        }
+        throw preconditionFailed();
+    }
+
+    /**
+     * What a conditional update that wrote nothing turns into: the document is missing or at another version.
+     */
+    static <T> Mono<T> unlessUnconditional(Long expectedVersion) {
+        return expectedVersion == null ? Mono.empty() : Mono.defer(() -> Mono.error(preconditionFailed()));
+    }
+
+    static ResponseStatusException preconditionFailed() {
+        return new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "The document was modified by someone else");
+    }
+
+    private static String collectionEtag(long stamp) {
+        return "W/\"" + stamp + "\"";
+    }
+
+    private static boolean matchesIfNoneMatch(HttpHeaders requestHeaders, String etag) {
+        return requestHeaders.getIfNoneMatch().stream()
+                .anyMatch(candidate -> candidate.equals("*") || opaqueTag(candidate).equals(opaqueTag(etag)));
+    }
+
+    private static String opaqueTag(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
@@ -0,0 +1,75 @@
+package guru.springframework.spring5webfluxrest.controllers;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Opaque keyset cursors for the paged list endpoints. A cursor wraps the id of the last document of a page,
+ * the next page being the documents with a greater id.
+ */
+final class PageCursor {
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final int MAX_LIMIT = 1000;
+
+    private PageCursor() {
+    }
+
+    static int limit(int requested) {
+        if (requested < 1) {
+            throw new ServerWebInputException("limit must be greater than zero");
+        }
+        return Math.min(requested, MAX_LIMIT);
+    }
+
+    static int limit(String requested) {
+        try {
+            return limit(Integer.parseInt(requested));
+        } catch (NumberFormatException e) {
+            throw new ServerWebInputException("limit must be a number");
+        }
+    }
+
+    static String encode(String id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new ServerWebInputException("Invalid cursor " + cursor);
+        }
+    }
+
+    /**
+     * A full page may be followed by more documents, so only then the response carries the cursor of the next one.
+     */
+    static <T> ResponseEntity<List<T>> toResponse(List<T> page, int limit, Function<T, String> idExtractor) {
+        final ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.size() == limit) {
+            response.header(NEXT_CURSOR_HEADER, encode(idExtractor.apply(page.get(page.size() - 1))));
+        }
+        return response.body(page);
+    }
+
+    static <T> Mono<ServerResponse> toServerResponse(List<T> page, int limit, Function<T, String> idExtractor,
+                                                     MediaType mediaType) {
+        final ServerResponse.BodyBuilder response = ServerResponse.ok().contentType(mediaType);
+        if (page.size() == limit) {
+            response.header(NEXT_CURSOR_HEADER, encode(idExtractor.apply(page.get(page.size() - 1))));
+        }
+        return response.syncBody(page);
+    }
+}
@@ -0,0 +1,44 @@
+package guru.springframework.spring5webfluxrest.controllers;
+
+import org.springframework.web.server.ServerWebInputException;
+
+/**
+ * Validation of the type-ahead search parameters. Results are always limited, so a short prefix never turns into
+ * a download of the whole collection.
+ */
+final class SearchParams {
+
+    static final int DEFAULT_LIMIT = 10;
+    static final int MAX_LIMIT = 100;
+
+    private SearchParams() {
+    }
+
+    static String prefix(String prefix) {
+        if (prefix == null || prefix.trim().isEmpty()) {
+            throw new ServerWebInputException("prefix must not be empty");
+        }
+        return prefix.trim();
+    }
+
+    static int limit(Integer requested) {
+        if (requested == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (requested < 1) {
+            throw new ServerWebInputException("limit must be greater than zero");
+        }
+        return Math.min(requested, MAX_LIMIT);
+    }
+
+    static int limit(String requested) {
+        if (requested == null) {
+            return DEFAULT_LIMIT;
+        }
+        try {
+            return limit(Integer.valueOf(requested));
+        } catch (NumberFormatException e) {
+            throw new ServerWebInputException("limit must be a number");
+        }
+    }
+}
@@ -1,62 +1,214 @@
 package guru.springframework.spring5webfluxrest.controllers;
 
+import guru.springframework.spring5webfluxrest.bulk.BatchResult;
+import guru.springframework.spring5webfluxrest.bulk.BulkIngester;
+import guru.springframework.spring5webfluxrest.bulk.SnapshotSync;
+import guru.springframework.spring5webfluxrest.bulk.SyncResult;
+import guru.springframework.spring5webfluxrest.bulk.WriteBehindBuffer;
+import guru.springframework.spring5webfluxrest.cache.CollectionStamp;
+import guru.springframework.spring5webfluxrest.cache.ReactiveReadThroughCache;
+import guru.springframework.spring5webfluxrest.config.CodecConfig;
+import guru.springframework.spring5webfluxrest.domain.CategorySummary;
 import guru.springframework.spring5webfluxrest.domain.Vendor;
+import guru.springframework.spring5webfluxrest.export.NdjsonExporter;
 import guru.springframework.spring5webfluxrest.repositories.VendorRepository;
+import guru.springframework.spring5webfluxrest.repositories.VersionedDocuments;
+import guru.springframework.spring5webfluxrest.summary.VendorSummaries;
 import lombok.AllArgsConstructor;
 import org.reactivestreams.Publisher;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 @AllArgsConstructor
 @RestController
+@ConditionalOnProperty(name = "api.routing", havingValue = "annotated", matchIfMissing = true)
 @RequestMapping("/api/v1/vendors")
 public class VendorController {
 
     private final VendorRepository vendorRepository;
+    private final ReactiveReadThroughCache<Vendor> vendorCache;
+    private final CollectionStamp vendorStamp;
+    private final BulkIngester bulkIngester;
+    private final NdjsonExporter ndjsonExporter;
+    private final WriteBehindBuffer<Vendor> vendorWriteBehind;
+    private final VendorSummaries vendorSummaries;
+    private final SnapshotSync snapshotSync;
 
+    /**
+     * The whole collection or, with {@code since}, the documents changed at or after that modification stamp.
+     * A client holding the current stamp of the collection gets a 304 without Mongo being queried.
+     */
     @GetMapping
-    Flux<Vendor> getAll() {
-        return vendorRepository.findAll();
-    };
+    ResponseEntity<Flux<Vendor>> getAll(@RequestParam(required = false) String since, @RequestHeader HttpHeaders headers) {
+        final long stamp = vendorStamp.current();
+        if (ConditionalRequests.collectionNotModified(headers, stamp)) {
+            return ConditionalRequests.collectionNotModified(stamp);
+        }
+        return ResponseEntity.ok()
+                .headers(ConditionalRequests.collectionHeaders(stamp))
+                .body(since == null ? vendorRepository.findAll() : vendorRepository.findModifiedSince(ConditionalRequests.since(since)));
+    }
+
+    @GetMapping(params = "limit")
+    Mono<ResponseEntity<List<Vendor>>> getPage(@RequestParam int limit, @RequestParam(required = false) String cursor) {
+        final int pageSize = PageCursor.limit(limit);
+        return vendorRepository.findPage(PageCursor.decode(cursor), pageSize)
+                .collectList()
+                .map(page -> PageCursor.toResponse(page, pageSize, Vendor::getId));
+    }
+
+    @GetMapping(params = "categoryId")
+    Flux<Vendor> getByCategory(@RequestParam String categoryId) {
+        return vendorRepository.findByCategory(CategoryParams.categoryId(categoryId));
+    }
+
+    /**
+     * Per category the vendor count and the first {@code vendors} vendors in name order, for every category with
+     * vendors or only for the given ones, answered in one round trip by one aggregation.
+     */
+    @GetMapping("/by-category")
+    Flux<CategorySummary> summarizeByCategory(@RequestParam(required = false) List<String> categoryId,
+                                              @RequestParam(required = false) Integer vendors) {
+        return vendorRepository.summarizeByCategory(
+                categoryId == null ? Collections.emptyList() : CategoryParams.categoryIds(categoryId),
+                CategoryParams.listed(vendors));
+    }
+
+    @GetMapping("/summary/initials")
+    Mono<Map<String, Long>> countByInitial() {
+        return vendorSummaries.counts(VendorSummaries.BY_INITIAL);
+    }
+
+    @GetMapping("/summary/categories")
+    Mono<Map<String, Long>> countByCategory() {
+        return vendorSummaries.counts(VendorSummaries.BY_CATEGORY);
+    }
+
+    /**
+     * Recounts the summaries from the vendors, answering with the number of vendors counted.
+     */
+    @PostMapping("/summary/rebuild")
+    Mono<Map<String, Long>> rebuildSummaries() {
+        return vendorSummaries.rebuild().map(vendors -> Collections.singletonMap("vendors", vendors));
+    }
 
+    @GetMapping("/search")
+    Flux<Vendor> searchVendors(@RequestParam String prefix, @RequestParam(required = false) Integer limit) {
+        return vendorRepository.searchByName(SearchParams.prefix(prefix), SearchParams.limit(limit));
+    }
+
+    /**
+     * Every vendor in id order as newline delimited JSON, read from Mongo only as fast as the client takes it.
+     * An interrupted export picks up where it stopped with the id of the last vendor received as {@code after}.
+     */
+    @GetMapping(value = "/export", produces = CodecConfig.APPLICATION_NDJSON_VALUE)
+    Flux<DataBuffer> exportVendors(@RequestParam(required = false) String after,
+                                 @RequestParam(required = false) String fields,
+                                 @RequestParam(required = false) Integer batchSize,
+                                 ServerHttpResponse response) {
+        return ndjsonExporter.write(vendorRepository.export(after,
+                ndjsonExporter.fields(fields, NdjsonExporter.VENDOR_FIELDS), ndjsonExporter.batchSize(batchSize)),
+                response.bufferFactory());
+    }
+
+    /**
+     * A client sending the ETag it holds gets a 304 when the version is unchanged, decided from the cached
+     * document or else from a query reading only the version.
+     */
     @GetMapping("/{id}")
-    Mono<Vendor> getById(@PathVariable String id) {
-        return vendorRepository.findById(id);
+    Mono<ResponseEntity<Vendor>> getById(@PathVariable String id, @RequestHeader HttpHeaders headers) {
+        if (headers.getIfNoneMatch().isEmpty()) {
+            return vendorCache.get(id).map(vendor -> ConditionalRequests.ok(vendor, vendor.getVersion()));
+        }
+        return vendorCache.peek(id)
+                .map(vendor -> VersionedDocuments.versionOf(vendor.getVersion()))
+                .switchIfEmpty(vendorRepository.findVersion(id))
+                .flatMap(version -> ConditionalRequests.notModified(headers, version)
+                        ? Mono.just(ConditionalRequests.<Vendor>notModified(version))
+                        : vendorCache.get(id).map(vendor -> ConditionalRequests.ok(vendor, vendor.getVersion())));
     }
 
     @ResponseStatus(HttpStatus.CREATED)
     @PostMapping
     Mono<Void> createVendor(@RequestBody Publisher<Vendor> vendorStream) {
-        return vendorRepository.saveAll(vendorStream).then();
+        return vendorStamp.writeMany(modified -> vendorRepository.saveAll(Flux.from(vendorStream)
+                        .doOnNext(vendor -> vendor.setLastModified(modified))))
+                .doOnNext(saved -> vendorCache.invalidate(saved.getId()))
+                .concatMap(vendorSummaries::written)
+                .then();
     }
 
-    @PutMapping("/{id}")
-    Mono<Vendor> updateVendor(@PathVariable String id, @RequestBody Vendor vendor) {
-        vendor.setId(id);
-        return vendorRepository.save(vendor);
+    @ResponseStatus(HttpStatus.CREATED)
+    @PostMapping("/bulk")
+    Flux<BatchResult> bulkCreateVendors(@RequestBody Flux<Vendor> vendorStream) {
+        return vendorStamp.writeMany(modified -> bulkIngester.ingest(
+                vendorStream.doOnNext(vendor -> vendor.setLastModified(modified)),
+                vendorSummaries.recording(vendorRepository::insertUnordered)));
     }
 
-    @PatchMapping("/{id}")
-    Mono<Vendor> patchVendor(@PathVariable String id, @RequestBody Vendor vendor) {
-        final Vendor vendorFound = vendorRepository.findById(id).block();
-
-        final String firstName = vendor.getFirstName();
-        final String lastName = vendor.getLastName();
+    /**
+     * Makes the vendors with an external id match a full snapshot of the upstream master data, writing only what
+     * changed. Unless {@code delete} is false, the vendors missing from the snapshot are deleted.
+     */
+    @PostMapping("/sync")
+    Mono<SyncResult> syncVendors(@RequestBody Flux<Vendor> snapshot, @RequestParam(defaultValue = "true") boolean delete) {
+        return vendorStamp.write(modified -> snapshotSync.sync(snapshot.doOnNext(vendor -> vendor.setLastModified(modified)),
+                vendorRepository, delete,
+                written -> {
+                    vendorCache.invalidate(written.getId());
+                    return vendorSummaries.written(written);
+                },
+                deleted -> {
+                    vendorCache.invalidate(deleted.getId());
+                    return vendorSummaries.removed(deleted.getId());
+                }));
+    }
 
-        boolean changesMade = false;
-        if(firstName != null && !vendorFound.getFirstName().equals(firstName)) {
-            vendorFound.setFirstName(vendor.getFirstName());
-            changesMade = true;
-        }
-        if(lastName != null && !vendorFound.getLastName().equals(lastName)) {
-            vendorFound.setLastName(vendor.getLastName());
-            changesMade = true;
+    /**
+     * With write-behind on, an unconditional update is buffered and written in bulk along with the others. A
+     * conditional one waits for the buffered updates of the vendor to be written first.
+     */
+    @PutMapping("/{id}")
+    Mono<ResponseEntity<Vendor>> updateVendor(@PathVariable String id, @RequestBody Vendor vendor, @RequestHeader HttpHeaders headers) {
+        final Long expectedVersion = ConditionalRequests.expectedVersion(headers);
+        if (expectedVersion == null && vendorWriteBehind.isEnabled()) {
+            final Mono<Void> buffered = vendorWriteBehind.buffer(id, vendor);
+            return buffered == null
+                    ? BufferedWrites.full(vendorWriteBehind)
+                    : BufferedWrites.accepted(buffered, headers, vendorWriteBehind);
         }
+        return vendorWriteBehind.written(id).then(vendorStamp.write(modified -> {
+                    vendor.setLastModified(modified);
+                    return vendorRepository.replace(id, vendor, expectedVersion);
+                }))
+                .switchIfEmpty(ConditionalRequests.unlessUnconditional(expectedVersion))
+                .flatMap(vendorSummaries::written)
+                .map(saved -> ConditionalRequests.ok(saved, saved.getVersion()))
+                .doFinally(signal -> vendorCache.invalidate(id));
+    }
 
-        return changesMade ? vendorRepository.save(vendor) : Mono.just(vendorFound);
-
+    @PatchMapping("/{id}")
+    Mono<ResponseEntity<Vendor>> patchVendor(@PathVariable String id, @RequestBody Vendor vendor, @RequestHeader HttpHeaders headers) {
+        final Long expectedVersion = ConditionalRequests.expectedVersion(headers);
+        return vendorWriteBehind.written(id).then(vendorStamp.write(modified -> {
+                    vendor.setLastModified(modified);
+                    return vendorRepository.patch(id, vendor, expectedVersion);
+                }))
+                .switchIfEmpty(ConditionalRequests.unlessUnconditional(expectedVersion))
+                .flatMap(vendorSummaries::written)
+                .map(patched -> ConditionalRequests.ok(patched, patched.getVersion()))
+                .doFinally(signal -> vendorCache.invalidate(id));
     }
 
 }
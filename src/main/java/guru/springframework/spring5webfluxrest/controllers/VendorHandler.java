@@ -0,0 +1,223 @@
+package guru.springframework.spring5webfluxrest.controllers;
+
+import guru.springframework.spring5webfluxrest.bulk.BatchResult;
+import guru.springframework.spring5webfluxrest.bulk.BulkIngester;
+import guru.springframework.spring5webfluxrest.bulk.SnapshotSync;
+import guru.springframework.spring5webfluxrest.bulk.SyncResult;
+import guru.springframework.spring5webfluxrest.bulk.WriteBehindBuffer;
+import guru.springframework.spring5webfluxrest.cache.CollectionStamp;
+import guru.springframework.spring5webfluxrest.cache.ReactiveReadThroughCache;
+import guru.springframework.spring5webfluxrest.config.CodecConfig;
+import guru.springframework.spring5webfluxrest.domain.CategorySummary;
+import guru.springframework.spring5webfluxrest.domain.Vendor;
+import guru.springframework.spring5webfluxrest.export.NdjsonExporter;
+import guru.springframework.spring5webfluxrest.repositories.VendorRepository;
+import guru.springframework.spring5webfluxrest.repositories.VersionedDocuments;
+import guru.springframework.spring5webfluxrest.summary.VendorSummaries;
+import lombok.AllArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Functional counterpart of {@link VendorController}, routed by {@link ApiRoutes}.
+ */
+@AllArgsConstructor
+@Component
+@ConditionalOnProperty(name = "api.routing", havingValue = "functional")
+public class VendorHandler {
+
+    private static final ParameterizedTypeReference<Map<String, Long>> COUNTS = new ParameterizedTypeReference<Map<String, Long>>() {
+    };
+
+    private final VendorRepository vendorRepository;
+    private final ReactiveReadThroughCache<Vendor> vendorCache;
+    private final CollectionStamp vendorStamp;
+    private final BulkIngester bulkIngester;
+    private final NdjsonExporter ndjsonExporter;
+    private final WriteBehindBuffer<Vendor> vendorWriteBehind;
+    private final VendorSummaries vendorSummaries;
+    private final SnapshotSync snapshotSync;
+
+    Mono<ServerResponse> getAll(ServerRequest request) {
+        final MediaType mediaType = ApiRoutes.listMediaType(request);
+        final long stamp = vendorStamp.current();
+        if (ConditionalRequests.collectionNotModified(request.headers().asHttpHeaders(), stamp)) {
+            return ConditionalRequests.collectionNotModifiedResponse(stamp);
+        }
+        final Flux<Vendor> vendors = request.queryParam("since")
+                .map(since -> vendorRepository.findModifiedSince(ConditionalRequests.since(since)))
+                .orElseGet(vendorRepository::findAll);
+        return ServerResponse.ok()
+                .headers(headers -> headers.addAll(ConditionalRequests.collectionHeaders(stamp)))
+                .contentType(mediaType)
+                .body(vendors, Vendor.class);
+    }
+
+    Mono<ServerResponse> getPage(ServerRequest request) {
+        final int pageSize = PageCursor.limit(request.queryParam("limit").orElse(""));
+        return vendorRepository.findPage(PageCursor.decode(request.queryParam("cursor").orElse(null)), pageSize)
+                .collectList()
+                .flatMap(page -> PageCursor.toServerResponse(page, pageSize, Vendor::getId, ApiRoutes.documentMediaType(request)));
+    }
+
+    Mono<ServerResponse> getByCategory(ServerRequest request) {
+        final ObjectId categoryId = CategoryParams.categoryId(request.queryParam("categoryId").orElse(null));
+        return ServerResponse.ok()
+                .contentType(ApiRoutes.listMediaType(request))
+                .body(vendorRepository.findByCategory(categoryId), Vendor.class);
+    }
+
+    Mono<ServerResponse> summarizeByCategory(ServerRequest request) {
+        final List<ObjectId> categoryIds = CategoryParams.categoryIds(request.queryParams().getOrDefault("categoryId", Collections.emptyList()));
+        final int listed = CategoryParams.listed(request.queryParam("vendors").orElse(null));
+        return ServerResponse.ok()
+                .contentType(ApiRoutes.listMediaType(request))
+                .body(vendorRepository.summarizeByCategory(categoryIds, listed), CategorySummary.class);
+    }
+
+    Mono<ServerResponse> countByInitial(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(ApiRoutes.documentMediaType(request))
+                .body(vendorSummaries.counts(VendorSummaries.BY_INITIAL), COUNTS);
+    }
+
+    Mono<ServerResponse> countByCategory(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(ApiRoutes.documentMediaType(request))
+                .body(vendorSummaries.counts(VendorSummaries.BY_CATEGORY), COUNTS);
+    }
+
+    Mono<ServerResponse> rebuildSummaries(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(ApiRoutes.documentMediaType(request))
+                .body(vendorSummaries.rebuild().map(vendors -> Collections.singletonMap("vendors", vendors)), COUNTS);
+    }
+
+    Mono<ServerResponse> searchVendors(ServerRequest request) {
+        final String prefix = SearchParams.prefix(request.queryParam("prefix").orElse(null));
+        final int limit = SearchParams.limit(request.queryParam("limit").orElse(null));
+        return ServerResponse.ok()
+                .contentType(ApiRoutes.listMediaType(request))
+                .body(vendorRepository.searchByName(prefix, limit), Vendor.class);
+    }
+
+    Mono<ServerResponse> exportVendors(ServerRequest request) {
+        final List<String> fields = ndjsonExporter.fields(request.queryParam("fields").orElse(null), NdjsonExporter.VENDOR_FIELDS);
+        final int batchSize = ndjsonExporter.batchSize(request.queryParam("batchSize").orElse(null));
+        return ServerResponse.ok()
+                .contentType(CodecConfig.APPLICATION_NDJSON)
+                .body(BodyInserters.fromDataBuffers(ndjsonExporter.write(
+                        vendorRepository.export(request.queryParam("after").orElse(null), fields, batchSize),
+                        request.exchange().getResponse().bufferFactory())));
+    }
+
+    Mono<ServerResponse> getById(ServerRequest request) {
+        final String id = request.pathVariable("id");
+        final MediaType mediaType = ApiRoutes.documentMediaType(request);
+        final HttpHeaders headers = request.headers().asHttpHeaders();
+        if (headers.getIfNoneMatch().isEmpty()) {
+            return vendorCache.get(id)
+                    .flatMap(vendor -> ConditionalRequests.okResponse(vendor, vendor.getVersion(), mediaType))
+                    .switchIfEmpty(ServerResponse.ok().build());
+        }
+        return vendorCache.peek(id)
+                .map(vendor -> VersionedDocuments.versionOf(vendor.getVersion()))
+                .switchIfEmpty(vendorRepository.findVersion(id))
+                .flatMap(version -> ConditionalRequests.notModified(headers, version)
+                        ? ConditionalRequests.notModifiedResponse(version)
+                        : vendorCache.get(id).flatMap(vendor -> ConditionalRequests.okResponse(vendor, vendor.getVersion(), mediaType)))
+                .switchIfEmpty(ServerResponse.ok().build());
+    }
+
+    Mono<ServerResponse> createVendor(ServerRequest request) {
+        return ServerResponse.status(HttpStatus.CREATED)
+                .build(vendorStamp.writeMany(modified -> vendorRepository.saveAll(request.bodyToFlux(Vendor.class)
+                                .doOnNext(vendor -> vendor.setLastModified(modified))))
+                        .doOnNext(saved -> vendorCache.invalidate(saved.getId()))
+                        .concatMap(vendorSummaries::written)
+                        .then());
+    }
+
+    Mono<ServerResponse> bulkCreateVendors(ServerRequest request) {
+        return ServerResponse.status(HttpStatus.CREATED)
+                .body(vendorStamp.writeMany(modified -> bulkIngester.ingest(
+                        request.bodyToFlux(Vendor.class).doOnNext(vendor -> vendor.setLastModified(modified)),
+                        vendorSummaries.recording(vendorRepository::insertUnordered))), BatchResult.class);
+    }
+
+    Mono<ServerResponse> syncVendors(ServerRequest request) {
+        final boolean delete = request.queryParam("delete").map(Boolean::parseBoolean).orElse(true);
+        return ServerResponse.ok()
+                .contentType(ApiRoutes.documentMediaType(request))
+                .body(vendorStamp.write(modified -> snapshotSync.sync(request.bodyToFlux(Vendor.class)
+                                .doOnNext(vendor -> vendor.setLastModified(modified)),
+                        vendorRepository, delete,
+                        written -> {
+                            vendorCache.invalidate(written.getId());
+                            return vendorSummaries.written(written);
+                        },
+                        deleted -> {
+                            vendorCache.invalidate(deleted.getId());
+                            return vendorSummaries.removed(deleted.getId());
+                        })), SyncResult.class);
+    }
+
+    Mono<ServerResponse> updateVendor(ServerRequest request) {
+        final String id = request.pathVariable("id");
+        final MediaType mediaType = ApiRoutes.documentMediaType(request);
+        final Long expectedVersion = ConditionalRequests.expectedVersion(request.headers().asHttpHeaders());
+        return body(request)
+                .flatMap(vendor -> {
+                    if (expectedVersion == null && vendorWriteBehind.isEnabled()) {
+                        final Mono<Void> buffered = vendorWriteBehind.buffer(id, vendor);
+                        return buffered == null
+                                ? BufferedWrites.fullResponse(vendorWriteBehind)
+                                : BufferedWrites.acceptedResponse(buffered, request.headers().asHttpHeaders(), vendorWriteBehind);
+                    }
+                    return vendorWriteBehind.written(id).then(vendorStamp.write(modified -> {
+                                vendor.setLastModified(modified);
+                                return vendorRepository.replace(id, vendor, expectedVersion);
+                            }))
+                            .switchIfEmpty(ConditionalRequests.unlessUnconditional(expectedVersion))
+                            .doFinally(signal -> vendorCache.invalidate(id))
+                            .flatMap(vendorSummaries::written)
+                            .flatMap(saved -> ConditionalRequests.okResponse(saved, saved.getVersion(), mediaType));
+                });
+    }
+
+    Mono<ServerResponse> patchVendor(ServerRequest request) {
+        final String id = request.pathVariable("id");
+        final MediaType mediaType = ApiRoutes.documentMediaType(request);
+        final Long expectedVersion = ConditionalRequests.expectedVersion(request.headers().asHttpHeaders());
+        return body(request)
+                .flatMap(vendor -> vendorWriteBehind.written(id).then(vendorStamp.write(modified -> {
+                            vendor.setLastModified(modified);
+                            return vendorRepository.patch(id, vendor, expectedVersion);
+                        }))
+                        .switchIfEmpty(ConditionalRequests.unlessUnconditional(expectedVersion))
+                        .doFinally(signal -> vendorCache.invalidate(id)))
+                .flatMap(vendorSummaries::written)
+                .flatMap(patched -> ConditionalRequests.okResponse(patched, patched.getVersion(), mediaType))
+                .switchIfEmpty(ServerResponse.ok().build());
+    }
+
+    private static Mono<Vendor> body(ServerRequest request) {
+        return request.bodyToMono(Vendor.class)
+                .switchIfEmpty(Mono.defer(() -> Mono.error(new ServerWebInputException("Request body is missing"))));
+    }
+}
@@ -5,17 +5,37 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.Instant;
+import java.util.Objects;
+
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 @Data
 @Document
-public class Category {
+public class Category implements ExternallyKeyed<Category> {
 
     @Id
     private String id;
 
+    /**
+     * Key of the category in the upstream master data, unique among the categories that have one.
+     */
+    private String externalId;
+
     private String description;
+
+    @Version
+    private Long version;
+
+    private Instant lastModified;
+
+    @Override
+    public boolean sameContent(Category other) {
+        return Objects.equals(externalId, other.externalId)
+                && Objects.equals(description, other.description);
+    }
 }
@@ -0,0 +1,38 @@
+package guru.springframework.spring5webfluxrest.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A category with the number of its vendors and the first of them in name order, read in one aggregation.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class CategorySummary {
+
+    private String categoryId;
+
+    private String description;
+
+    private long vendorCount;
+
+    private List<VendorName> vendors;
+
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Data
+    public static class VendorName {
+
+        private String id;
+
+        private String firstName;
+
+        private String lastName;
+    }
+}
@@ -0,0 +1,18 @@
+package guru.springframework.spring5webfluxrest.domain;
+
+/**
+ * A document an upstream system identifies by its own key, so snapshots of that system can be synced by it.
+ */
+public interface ExternallyKeyed<T> {
+
+    String getId();
+
+    void setId(String id);
+
+    String getExternalId();
+
+    /**
+     * Whether the other document holds the same data, leaving aside the ids, the version and the modification time.
+     */
+    boolean sameContent(T other);
+}
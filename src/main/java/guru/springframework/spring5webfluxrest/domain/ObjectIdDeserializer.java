@@ -0,0 +1,22 @@
+package guru.springframework.spring5webfluxrest.domain;
+
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.FromStringDeserializer;
+import org.bson.types.ObjectId;
+
+/**
+ * Reads an ObjectId from its hex string; any other string is reported as an invalid value, so it answers a 400.
+ */
+public class ObjectIdDeserializer extends FromStringDeserializer<ObjectId> {
+
+    private static final long serialVersionUID = 1L;
+
+    public ObjectIdDeserializer() {
+        super(ObjectId.class);
+    }
+
+    @Override
+    protected ObjectId _deserialize(String value, DeserializationContext context) {
+        return new ObjectId(value);
+    }
+}
@@ -1,19 +1,53 @@
 package guru.springframework.spring5webfluxrest.domain;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import lombok.*;
+import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.Instant;
+import java.util.Objects;
+
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 @Data
 @Document
-public class Vendor {
+public class Vendor implements ExternallyKeyed<Vendor> {
 
     @Id
     String id;
 
+    /**
+     * Key of the vendor in the upstream master data, unique among the vendors that have one.
+     */
+    String externalId;
+
     String firstName;
     String lastName;
+
+    /**
+     * Id of the category of the vendor. Kept as an ObjectId, as the category id itself is stored, so the two can
+     * be joined by {@code $lookup}; it reads and writes as a hex string.
+     */
+    @JsonSerialize(using = ToStringSerializer.class)
+    @JsonDeserialize(using = ObjectIdDeserializer.class)
+    ObjectId categoryId;
+
+    @Version
+    Long version;
+
+    Instant lastModified;
+
+    @Override
+    public boolean sameContent(Vendor other) {
+        return Objects.equals(externalId, other.externalId)
+                && Objects.equals(firstName, other.firstName)
+                && Objects.equals(lastName, other.lastName)
+                && Objects.equals(categoryId, other.categoryId);
+    }
 }
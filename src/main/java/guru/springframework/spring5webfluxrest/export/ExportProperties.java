@@ -0,0 +1,21 @@
+package guru.springframework.spring5webfluxrest.export;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties("api.export")
+public class ExportProperties {
+
+    /**
+     * Number of documents fetched from the Mongo cursor at a time when the request does not set {@code batchSize}.
+     */
+    private int batchSize = 1000;
+
+    /**
+     * Largest {@code batchSize} a request may ask for.
+     */
+    private int maxBatchSize = 10_000;
+}
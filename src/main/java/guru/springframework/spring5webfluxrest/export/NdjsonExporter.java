@@ -0,0 +1,102 @@
+package guru.springframework.spring5webfluxrest.export;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes exported documents as newline delimited JSON. Each line is handed to the server as its own buffer
+ * without a flush per document, so Netty writes as many lines at once as the socket takes, and the Mongo cursor
+ * is only read further as the client consumes the export.
+ */
+@Component
+public class NdjsonExporter {
+
+    public static final List<String> VENDOR_FIELDS = Collections.unmodifiableList(
+            Arrays.asList("externalId", "firstName", "lastName", "categoryId", "version", "lastModified"));
+    public static final List<String> CATEGORY_FIELDS = Collections.unmodifiableList(
+            Arrays.asList("externalId", "description", "version", "lastModified"));
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final ExportProperties properties;
+    private final ObjectWriter writer;
+
+    public NdjsonExporter(ExportProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.writer = objectMapper.writer();
+    }
+
+    /**
+     * The fields to export from a comma separated list, every exportable one when none is given. The id is always
+     * exported, being what an interrupted export resumes after.
+     */
+    public List<String> fields(String requested, List<String> exportable) {
+        if (requested == null || requested.trim().isEmpty()) {
+            return exportable;
+        }
+        final Set<String> fields = new LinkedHashSet<>();
+        for (String field : requested.split(",")) {
+            final String name = field.trim();
+            if (name.equals("id")) {
+                continue;
+            }
+            if (!exportable.contains(name)) {
+                throw new ServerWebInputException("fields must be among id, " + String.join(", ", exportable));
+            }
+            fields.add(name);
+        }
+        return new ArrayList<>(fields);
+    }
+
+    public int batchSize(Integer requested) {
+        if (requested == null) {
+            return properties.getBatchSize();
+        }
+        if (requested < 1) {
+            throw new ServerWebInputException("batchSize must be greater than zero");
+        }
+        return Math.min(requested, properties.getMaxBatchSize());
+    }
+
+    public int batchSize(String requested) {
+        if (requested == null) {
+            return properties.getBatchSize();
+        }
+        try {
+            return batchSize(Integer.valueOf(requested));
+        } catch (NumberFormatException e) {
+            throw new ServerWebInputException("batchSize must be a number");
+        }
+    }
+
+    public Flux<DataBuffer> write(Flux<Map<String, Object>> documents, DataBufferFactory bufferFactory) {
+        return documents.map(document -> {
+            final byte[] json = writeValueAsBytes(document);
+            final DataBuffer buffer = bufferFactory.allocateBuffer(json.length + 1);
+            return buffer.write(json).write(NEWLINE);
+        });
+    }
+
+    private byte[] writeValueAsBytes(Map<String, Object> document) {
+        try {
+            return writer.writeValueAsBytes(document);
+        } catch (JsonProcessingException e) {
+            throw new EncodingException("JSON encoding error: " + e.getOriginalMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package guru.springframework.spring5webfluxrest.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import lombok.AllArgsConstructor;
+import org.springframework.http.client.reactive.ReactorResourceFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.Scannable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.resources.LoopResources;
+
+import java.util.function.Supplier;
+
+/**
+ * Queue depth of the Netty event loops serving HTTP and of the shared Reactor schedulers. Growing queues
+ * point at event loop saturation rather than at slow Mongo calls.
+ */
+@AllArgsConstructor
+@Component
+public class EventLoopMetrics implements MeterBinder {
+
+    static final String EVENT_LOOP_PENDING_TASKS = "reactor.netty.eventloop.pending.tasks";
+    static final String SCHEDULER_PENDING_TASKS = "reactor.scheduler.pending.tasks";
+
+    private final ReactorResourceFactory resourceFactory;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        final EventLoopGroup eventLoops = resourceFactory.getLoopResources().onServer(LoopResources.DEFAULT_NATIVE);
+        int index = 0;
+        for (EventExecutor executor : eventLoops) {
+            if (executor instanceof SingleThreadEventExecutor) {
+                Gauge.builder(EVENT_LOOP_PENDING_TASKS, (SingleThreadEventExecutor) executor, SingleThreadEventExecutor::pendingTasks)
+                        .description("Tasks waiting in the queue of a Netty event loop")
+                        .tag("eventloop", String.valueOf(index++))
+                        .register(registry);
+            }
+        }
+
+        bindScheduler(registry, "parallel", Schedulers.parallel());
+        bindScheduler(registry, "elastic", Schedulers.elastic());
+    }
+
+    private static void bindScheduler(MeterRegistry registry, String name, Scheduler scheduler) {
+        Gauge.builder(SCHEDULER_PENDING_TASKS, scheduler, EventLoopMetrics::pendingTasks)
+                .description("Tasks submitted to a Reactor scheduler and not completed yet")
+                .tag("scheduler", name)
+                .register(registry);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static double pendingTasks(Scheduler scheduler) {
+        // the shared schedulers are cached wrappers, the executors are reachable from the scheduler they wrap
+        final Scheduler actual = scheduler instanceof Supplier ? ((Supplier<Scheduler>) scheduler).get() : scheduler;
+        return Scannable.from(actual).inners()
+                .mapToInt(executor -> {
+                    final Integer buffered = executor.scan(Scannable.Attr.BUFFERED);
+                    return buffered == null ? 0 : buffered;
+                })
+                .sum();
+    }
+}
@@ -0,0 +1,57 @@
+package guru.springframework.spring5webfluxrest.metrics;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every command the driver sends, as seen on the wire, as {@code mongodb.driver.commands}. The listener is
+ * given to the client before the meter registry exists, so commands are only timed once it is bound.
+ */
+public class MongoCommandMetricsListener implements CommandListener, MeterBinder {
+
+    static final String METRIC_NAME = "mongodb.driver.commands";
+
+    private volatile MeterRegistry meterRegistry;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        meterRegistry = registry;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        record(event.getCommandName(), event.getConnectionDescription().getServerAddress().toString(), "success",
+                event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        record(event.getCommandName(), event.getConnectionDescription().getServerAddress().toString(), "failed",
+                event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    private void record(String command, String server, String status, long elapsedNanos) {
+        final MeterRegistry meterRegistry = this.meterRegistry;
+        if (meterRegistry == null) {
+            return;
+        }
+        Timer.builder(METRIC_NAME)
+                .description("Mongo commands, from the time they are sent until their reply is read")
+                .tag("command", command)
+                .tag("server", server)
+                .tag("status", status)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,135 @@
+package guru.springframework.spring5webfluxrest.metrics;
+
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.ConnectionAddedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolClosedEvent;
+import com.mongodb.event.ConnectionPoolListenerAdapter;
+import com.mongodb.event.ConnectionPoolOpenedEvent;
+import com.mongodb.event.ConnectionPoolWaitQueueEnteredEvent;
+import com.mongodb.event.ConnectionPoolWaitQueueExitedEvent;
+import com.mongodb.event.ConnectionRemovedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Gauges of the driver connection pool of each server: open connections, connections checked out
+ * and operations waiting for a connection, along with the maximum size the pool is configured with. Pools may open while the client is built, before the meter registry
+ * exists, so their gauges are registered once the listener is bound.
+ */
+public class MongoConnectionPoolMetricsListener extends ConnectionPoolListenerAdapter implements MeterBinder {
+
+    static final String SIZE = "mongodb.driver.pool.size";
+    static final String CHECKED_OUT = "mongodb.driver.pool.checkedout";
+    static final String WAIT_QUEUE_SIZE = "mongodb.driver.pool.waitqueuesize";
+    static final String MAX_SIZE = "mongodb.driver.pool.maxsize";
+
+    private final Map<ServerId, PoolGauges> pools = new ConcurrentHashMap<>();
+    private MeterRegistry meterRegistry;
+
+    @Override
+    public synchronized void bindTo(MeterRegistry registry) {
+        meterRegistry = registry;
+        pools.values().forEach(gauges -> gauges.register(registry));
+    }
+
+    @Override
+    public synchronized void connectionPoolOpened(ConnectionPoolOpenedEvent event) {
+        final PoolGauges gauges = new PoolGauges(Tags.of("server", event.getServerId().getAddress().toString()),
+                event.getSettings().getMaxSize());
+        pools.put(event.getServerId(), gauges);
+        if (meterRegistry != null) {
+            gauges.register(meterRegistry);
+        }
+    }
+
+    @Override
+    public synchronized void connectionPoolClosed(ConnectionPoolClosedEvent event) {
+        final PoolGauges gauges = pools.remove(event.getServerId());
+        if (gauges != null && meterRegistry != null) {
+            gauges.meters.forEach(meterRegistry::remove);
+        }
+    }
+
+    @Override
+    public void connectionAdded(ConnectionAddedEvent event) {
+        update(event.getConnectionId().getServerId(), gauges -> gauges.size.incrementAndGet());
+    }
+
+    @Override
+    public void connectionRemoved(ConnectionRemovedEvent event) {
+        update(event.getConnectionId().getServerId(), gauges -> gauges.size.decrementAndGet());
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        update(event.getConnectionId().getServerId(), gauges -> gauges.checkedOut.incrementAndGet());
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        update(event.getConnectionId().getServerId(), gauges -> gauges.checkedOut.decrementAndGet());
+    }
+
+    @Override
+    public void waitQueueEntered(ConnectionPoolWaitQueueEnteredEvent event) {
+        update(event.getServerId(), gauges -> gauges.waitQueueSize.incrementAndGet());
+    }
+
+    @Override
+    public void waitQueueExited(ConnectionPoolWaitQueueExitedEvent event) {
+        update(event.getServerId(), gauges -> gauges.waitQueueSize.decrementAndGet());
+    }
+
+    private void update(ServerId serverId, Consumer<PoolGauges> update) {
+        final PoolGauges gauges = pools.get(serverId);
+        if (gauges != null) {
+            update.accept(gauges);
+        }
+    }
+
+    private static class PoolGauges {
+
+        private final Tags tags;
+        private final int maxSize;
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicInteger checkedOut = new AtomicInteger();
+        private final AtomicInteger waitQueueSize = new AtomicInteger();
+        private final List<Meter> meters = new ArrayList<>();
+
+        PoolGauges(Tags tags, int maxSize) {
+            this.tags = tags;
+            this.maxSize = maxSize;
+        }
+
+        void register(MeterRegistry meterRegistry) {
+            meters.add(Gauge.builder(SIZE, size, AtomicInteger::get)
+                    .description("Connections currently open in the pool")
+                    .tags(tags)
+                    .register(meterRegistry));
+            meters.add(Gauge.builder(CHECKED_OUT, checkedOut, AtomicInteger::get)
+                    .description("Connections currently in use")
+                    .tags(tags)
+                    .register(meterRegistry));
+            meters.add(Gauge.builder(WAIT_QUEUE_SIZE, waitQueueSize, AtomicInteger::get)
+                    .description("Operations waiting for a connection")
+                    .tags(tags)
+                    .register(meterRegistry));
+            meters.add(Gauge.builder(MAX_SIZE, this, gauges -> gauges.maxSize)
+                    .description("Connections the pool may open")
+                    .tags(tags)
+                    .register(meterRegistry));
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package guru.springframework.spring5webfluxrest.metrics;
+
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The listeners are meter binders rather than meter registry consumers: the registry binds the cache metrics,
+ * which need the repositories and so the Mongo client, so the client cannot wait for the registry.
+ */
+@Configuration
+public class MongoMetricsConfig {
+
+    @Bean
+    MongoCommandMetricsListener mongoCommandMetricsListener() {
+        return new MongoCommandMetricsListener();
+    }
+
+    @Bean
+    MongoConnectionPoolMetricsListener mongoConnectionPoolMetricsListener() {
+        return new MongoConnectionPoolMetricsListener();
+    }
+
+    @Bean
+    MongoClientSettingsBuilderCustomizer mongoMetricsCustomizer(MongoCommandMetricsListener commandListener,
+                                                                MongoConnectionPoolMetricsListener connectionPoolListener) {
+        return settings -> settings
+                .addCommandListener(commandListener)
+                .applyToConnectionPoolSettings(pool -> pool.addConnectionPoolListener(connectionPoolListener));
+    }
+}
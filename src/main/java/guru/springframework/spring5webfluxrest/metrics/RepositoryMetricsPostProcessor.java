@@ -0,0 +1,78 @@
+package guru.springframework.spring5webfluxrest.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Times every reactive repository call, from subscription to termination, as {@code mongo.repository}
+ * tagged with the repository, the method and the outcome. The timing advice is added to the proxy Spring Data
+ * already creates for each repository, so no extra proxy sits in front of it.
+ */
+@Component
+public class RepositoryMetricsPostProcessor implements BeanPostProcessor {
+
+    static final String METRIC_NAME = "mongo.repository";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public RepositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof ReactiveCrudRepository && bean instanceof Advised) {
+            ((Advised) bean).addAdvice(0, timingInterceptor(beanName));
+        }
+        return bean;
+    }
+
+    private MethodInterceptor timingInterceptor(String repository) {
+        return invocation -> {
+            final Object result = invocation.proceed();
+            final String method = invocation.getMethod().getName();
+            if (result instanceof Mono) {
+                return Mono.defer(() -> {
+                    final Timer.Sample sample = Timer.start(meterRegistry.getObject());
+                    return ((Mono<?>) result).doFinally(signal -> stop(sample, repository, method, signal));
+                });
+            }
+            if (result instanceof Flux) {
+                return Flux.defer(() -> {
+                    final Timer.Sample sample = Timer.start(meterRegistry.getObject());
+                    return ((Flux<?>) result).doFinally(signal -> stop(sample, repository, method, signal));
+                });
+            }
+            return result;
+        };
+    }
+
+    private void stop(Timer.Sample sample, String repository, String method, SignalType signal) {
+        sample.stop(Timer.builder(METRIC_NAME)
+                .description("Reactive repository calls, from subscription to termination")
+                .tag("repository", repository)
+                .tag("method", method)
+                .tag("outcome", outcome(signal))
+                .register(meterRegistry.getObject()));
+    }
+
+    private static String outcome(SignalType signal) {
+        switch (signal) {
+            case ON_COMPLETE:
+                return "success";
+            case ON_ERROR:
+                return "error";
+            default:
+                return "cancelled";
+        }
+    }
+}
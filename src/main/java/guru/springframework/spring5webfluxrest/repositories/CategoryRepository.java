@@ -2,6 +2,9 @@ package guru.springframework.spring5webfluxrest.repositories;
 
 import guru.springframework.spring5webfluxrest.domain.Category;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Mono;
 
-public interface CategoryRepository extends ReactiveMongoRepository<Category, String> {
+public interface CategoryRepository extends ReactiveMongoRepository<Category, String>, CategoryRepositoryCustom {
+
+    Mono<Category> findByDescription(String description);
 }
@@ -0,0 +1,37 @@
+package guru.springframework.spring5webfluxrest.repositories;
+
+import guru.springframework.spring5webfluxrest.domain.Category;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+public interface CategoryRepositoryCustom extends ExternalIdOperations<Category> {
+
+    /**
+     * Takes the place of the CRUD method, so lists can be read from secondaries. Reads by id stay on the primary:
+     * they load the cache, which would otherwise keep serving the version a lagging secondary had.
+     */
+    Flux<Category> findAll();
+
+    Flux<Category> findPage(String afterId, int limit);
+
+    Flux<Category> searchByDescription(String prefix, int limit);
+
+    Flux<Category> findModifiedSince(Instant since);
+
+    Flux<Map<String, Object>> export(String afterId, List<String> fields, int batchSize);
+
+    Mono<Long> insertUnordered(List<Category> categories);
+
+    Mono<Long> findVersion(String id);
+
+    Mono<Category> replace(String id, Category category, Long expectedVersion);
+
+    @Override
+    Mono<Long> replaceAll(Map<String, Category> categories);
+
+    Mono<Category> patch(String id, Category category, Long expectedVersion);
+}
@@ -0,0 +1,156 @@
+package guru.springframework.spring5webfluxrest.repositories;
+
+import com.mongodb.ReadPreference;
+import guru.springframework.spring5webfluxrest.config.MongoClientProperties;
+import guru.springframework.spring5webfluxrest.domain.Category;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.data.mongodb.core.FindAndModifyOptions.options;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+public class CategoryRepositoryCustomImpl implements CategoryRepositoryCustom {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final ReadPreference readPreference;
+
+    public CategoryRepositoryCustomImpl(ReactiveMongoTemplate reactiveMongoTemplate, MongoClientProperties mongoClientProperties) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.readPreference = mongoClientProperties.toReadPreference();
+    }
+
+    @Override
+    public Flux<Category> findAll() {
+        return RoutedReads.findAll(reactiveMongoTemplate, Category.class, readPreference);
+    }
+
+    /**
+     * Keyset pagination: reads at most {@code limit} documents in id order, starting after {@code afterId}
+     * (or from the first one when it is null), so every page is an index range scan on {@code _id}.
+     */
+    @Override
+    public Flux<Category> findPage(String afterId, int limit) {
+        final Query query = new Query().with(Sort.by("id")).limit(limit);
+        if (afterId != null) {
+            query.addCriteria(where("id").gt(afterId));
+        }
+        return reactiveMongoTemplate.find(query, Category.class);
+    }
+
+    /**
+     * Categories whose description starts with {@code prefix}, ignoring case.
+     */
+    @Override
+    public Flux<Category> searchByDescription(String prefix, int limit) {
+        return reactiveMongoTemplate.find(
+                PrefixSearch.query("description", prefix, Sort.by("description"), limit), Category.class);
+    }
+
+    @Override
+    public Flux<Category> findModifiedSince(Instant since) {
+        return reactiveMongoTemplate.find(VersionedDocuments.modifiedSince(since), Category.class);
+    }
+
+    @Override
+    public Flux<Map<String, Object>> export(String afterId, List<String> fields, int batchSize) {
+        return Exports.export(reactiveMongoTemplate, Category.class, afterId, fields, batchSize);
+    }
+
+    @Override
+    public Flux<Category> findByExternalIds(Collection<String> externalIds) {
+        return ExternalIds.findByExternalIds(reactiveMongoTemplate, externalIds, Category.class);
+    }
+
+    @Override
+    public Flux<String> findExternalIds() {
+        return ExternalIds.findExternalIds(reactiveMongoTemplate, Category.class);
+    }
+
+    @Override
+    public Mono<Long> deleteByExternalIds(Collection<String> externalIds) {
+        return ExternalIds.deleteByExternalIds(reactiveMongoTemplate, externalIds, Category.class);
+    }
+
+    @Override
+    public Mono<Long> insertUnordered(List<Category> categories) {
+        return UnorderedInserts.insert(reactiveMongoTemplate, categories, Category.class);
+    }
+
+    @Override
+    public Mono<Long> findVersion(String id) {
+        return VersionedDocuments.findVersion(reactiveMongoTemplate, id, Category.class, Category::getVersion);
+    }
+
+    /**
+     * Overwrites every field of the document and bumps its version. Without an expected version the document is
+     * created when missing; with one, nothing is written and the result is empty unless the stored version matches.
+     */
+    @Override
+    public Mono<Category> replace(String id, Category category, Long expectedVersion) {
+        return reactiveMongoTemplate.findAndModify(VersionedDocuments.byIdAndVersion(id, expectedVersion),
+                VersionedDocuments.nextVersion(replaceUpdate(category), category.getLastModified()),
+                options().returnNew(true).upsert(expectedVersion == null), Category.class);
+    }
+
+    /**
+     * Replaces each document as {@link #replace} does without an expected version, with one bulk write.
+     */
+    @Override
+    public Mono<Long> replaceAll(Map<String, Category> categories) {
+        final Map<String, Update> updates = new LinkedHashMap<>();
+        categories.forEach((id, category) -> updates.put(id, VersionedDocuments.nextVersion(replaceUpdate(category), category.getLastModified())));
+        return UnorderedUpserts.upsert(reactiveMongoTemplate, updates, Category.class);
+    }
+
+    /**
+     * Applies the non null fields of the given category as a single server side {@code $set} and bumps the version,
+     * returning the updated document. When there is nothing to change the stored document is returned as is.
+     * With an expected version the result is empty unless the stored version matches.
+     */
+    @Override
+    public Mono<Category> patch(String id, Category category, Long expectedVersion) {
+        final Update update = patchUpdate(category);
+        final Query query = VersionedDocuments.byIdAndVersion(id, expectedVersion);
+        if (update.getUpdateObject().isEmpty()) {
+            return reactiveMongoTemplate.findOne(query, Category.class);
+        }
+        return reactiveMongoTemplate.findAndModify(query, VersionedDocuments.nextVersion(update, category.getLastModified()),
+                options().returnNew(true), Category.class);
+    }
+
+    static Update replaceUpdate(Category category) {
+        final Update update = new Update();
+        if (category.getExternalId() != null) {
+            update.set("externalId", category.getExternalId());
+        } else {
+            update.unset("externalId");
+        }
+        if (category.getDescription() != null) {
+            update.set("description", category.getDescription());
+        } else {
+            update.unset("description");
+        }
+        return update;
+    }
+
+    static Update patchUpdate(Category category) {
+        final Update update = new Update();
+        if (category.getExternalId() != null) {
+            update.set("externalId", category.getExternalId());
+        }
+        if (category.getDescription() != null) {
+            update.set("description", category.getDescription());
+        }
+        return update;
+    }
+}
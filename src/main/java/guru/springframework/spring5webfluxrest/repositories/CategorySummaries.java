@@ -0,0 +1,72 @@
+package guru.springframework.spring5webfluxrest.repositories;
+
+import guru.springframework.spring5webfluxrest.domain.Vendor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * The vendors of each category, counted and listed in one aggregation. The count matches on the
+ * {@code vendor_category} index and groups nothing but a counter, so its memory does not grow with the size of a
+ * category. Each category is then joined, and its first vendors are looked up from the same index in name order,
+ * no more than will be listed. Only the match names entity properties; the later stages are written as plain
+ * documents.
+ */
+final class CategorySummaries {
+
+    static final String CATEGORY_ID = "categoryId";
+
+    private static final int BSON_OBJECT_ID = 7;
+
+    private CategorySummaries() {
+    }
+
+    static TypedAggregation<Vendor> aggregation(String categoryCollection, String vendorCollection,
+                                                List<ObjectId> categoryIds, int listed) {
+        final Criteria categorized = categoryIds.isEmpty()
+                ? where(CATEGORY_ID).type(BSON_OBJECT_ID)
+                : where(CATEGORY_ID).in(categoryIds);
+        final List<AggregationOperation> stages = new ArrayList<>(Arrays.asList(
+                Aggregation.match(categorized),
+                stage("$group", new Document("_id", "$" + CATEGORY_ID)
+                        .append("vendorCount", new Document("$sum", 1))),
+                stage("$sort", new Document("_id", 1)),
+                stage("$lookup", new Document("from", categoryCollection)
+                        .append("localField", "_id")
+                        .append("foreignField", "_id")
+                        .append("as", "category"))));
+        final Document project = new Document("_id", 0)
+                .append(CATEGORY_ID, "$_id")
+                .append("description", new Document("$arrayElemAt", Arrays.asList("$category.description", 0)))
+                .append("vendorCount", 1);
+        if (listed > 0) {
+            stages.add(stage("$lookup", new Document("from", vendorCollection)
+                    .append("let", new Document("cid", "$_id"))
+                    .append("pipeline", Arrays.asList(
+                            new Document("$match", new Document("$expr",
+                                    new Document("$eq", Arrays.asList("$" + CATEGORY_ID, "$$cid")))),
+                            new Document("$sort", new Document("lastName", 1).append("firstName", 1)),
+                            new Document("$limit", listed),
+                            new Document("$project", new Document("firstName", 1).append("lastName", 1))))
+                    .append("as", "vendors")));
+            project.append("vendors", 1);
+        }
+        stages.add(stage("$project", project));
+        return Aggregation.newAggregation(Vendor.class, stages)
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+    }
+
+    private static AggregationOperation stage(String name, Document body) {
+        return context -> new Document(name, body);
+    }
+}
@@ -0,0 +1,63 @@
+package guru.springframework.spring5webfluxrest.repositories;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Reads for the exports: raw documents in id order, starting after a given id, with only the requested fields,
+ * fetched from a plain (non tailable) cursor {@code batchSize} documents at a time as they are consumed.
+ */
+final class Exports {
+
+    private Exports() {
+    }
+
+    static Flux<Map<String, Object>> export(ReactiveMongoTemplate reactiveMongoTemplate, Class<?> entityClass,
+                                            String afterId, List<String> fields, int batchSize) {
+        return reactiveMongoTemplate.find(query(afterId, fields, batchSize), Document.class,
+                reactiveMongoTemplate.getCollectionName(entityClass))
+                .map(Exports::toMap);
+    }
+
+    /**
+     * Read as plain documents, so field names and ids are not mapped: the query names {@code _id} itself.
+     */
+    static Query query(String afterId, List<String> fields, int batchSize) {
+        final Query query = new Query().with(Sort.by("_id")).cursorBatchSize(batchSize);
+        if (afterId != null) {
+            query.addCriteria(where("_id").gt(ObjectId.isValid(afterId) ? new ObjectId(afterId) : afterId));
+        }
+        // always a projection, leaving out fields such as _class that are not part of the API
+        query.fields().include("_id");
+        fields.forEach(field -> query.fields().include(field));
+        return query;
+    }
+
+    /**
+     * The document as the API shows it: {@code _id} becomes {@code id}, ObjectIds become strings and dates
+     * become instants.
+     */
+    static Map<String, Object> toMap(Document document) {
+        final Map<String, Object> exported = new LinkedHashMap<>(document.size() * 2);
+        document.forEach((key, value) -> exported.put(key.equals("_id") ? "id" : key, toApiValue(value)));
+        return exported;
+    }
+
+    private static Object toApiValue(Object value) {
+        if (value instanceof ObjectId) {
+            return ((ObjectId) value).toHexString();
+        }
+        return value instanceof Date ? ((Date) value).toInstant() : value;
+    }
+}
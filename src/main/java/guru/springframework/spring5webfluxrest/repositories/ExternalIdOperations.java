@@ -0,0 +1,25 @@
+package guru.springframework.spring5webfluxrest.repositories;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * What syncing a snapshot of the upstream master data needs from a repository, documents being matched on their
+ * external id.
+ */
+public interface ExternalIdOperations<T> {
+
+    Flux<T> findByExternalIds(Collection<String> externalIds);
+
+    /**
+     * The external id of every document that has one.
+     */
+    Flux<String> findExternalIds();
+
+    Mono<Long> replaceAll(Map<String, T> documents);
+
+    Mono<Long> deleteByExternalIds(Collection<String> externalIds);
+}
@@ -0,0 +1,44 @@
+package guru.springframework.spring5webfluxrest.repositories;
+
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Reads and deletes by external id, all through the unique sparse index on {@code externalId}.
+ */
+final class ExternalIds {
+
+    static final String EXTERNAL_ID = "externalId";
+
+    private ExternalIds() {
+    }
+
+    static <T> Flux<T> findByExternalIds(ReactiveMongoTemplate reactiveMongoTemplate, Collection<String> externalIds,
+                                         Class<T> entityClass) {
+        return reactiveMongoTemplate.find(new Query(where(EXTERNAL_ID).in(externalIds)), entityClass);
+    }
+
+    /**
+     * Reads the external ids alone in index order, so the query is answered from the index.
+     */
+    static Flux<String> findExternalIds(ReactiveMongoTemplate reactiveMongoTemplate, Class<?> entityClass) {
+        final Query query = new Query(where(EXTERNAL_ID).exists(true)).with(Sort.by(EXTERNAL_ID));
+        query.fields().include(EXTERNAL_ID).exclude("_id");
+        return reactiveMongoTemplate.find(query, Document.class, reactiveMongoTemplate.getCollectionName(entityClass))
+                .map(document -> document.getString(EXTERNAL_ID));
+    }
+
+    static Mono<Long> deleteByExternalIds(ReactiveMongoTemplate reactiveMongoTemplate, Collection<String> externalIds,
+                                          Class<?> entityClass) {
+        return reactiveMongoTemplate.remove(new Query(where(EXTERNAL_ID).in(externalIds)), entityClass)
+                .map(result -> result.getDeletedCount());
+    }
+}
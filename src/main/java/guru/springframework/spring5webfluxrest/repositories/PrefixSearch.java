@@ -0,0 +1,29 @@
+package guru.springframework.spring5webfluxrest.repositories;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Query;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Case insensitive prefix queries. A prefix is searched as the range {@code [prefix, prefix + U+FFFF)}
+ * compared with a secondary strength collation, which ignores case, so it is answered by a bounded scan of an
+ * index declared with the same collation instead of an unanchored case insensitive regex.
+ */
+public final class PrefixSearch {
+
+    public static final Collation CASE_INSENSITIVE = Collation.of("en").strength(Collation.ComparisonLevel.secondary());
+
+    private static final String UPPER_BOUND = "\uffff";
+
+    private PrefixSearch() {
+    }
+
+    public static Query query(String field, String prefix, Sort sort, int limit) {
+        return new Query(where(field).gte(prefix).lt(prefix + UPPER_BOUND))
+                .collation(CASE_INSENSITIVE)
+                .with(sort)
+                .limit(limit);
+    }
+}
@@ -0,0 +1,32 @@
+package guru.springframework.spring5webfluxrest.repositories;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+
+/**
+ * Reads that may be served by any member the given read preference allows. The template applies one read
+ * preference to all of its reads, so these go to the collection itself and map the documents with the
+ * template's converter. With the primary read preference they are the template's own reads.
+ */
+final class RoutedReads {
+
+    private RoutedReads() {
+    }
+
+    static <T> Flux<T> findAll(ReactiveMongoTemplate reactiveMongoTemplate, Class<T> entityClass, ReadPreference readPreference) {
+        if (ReadPreference.primary().equals(readPreference)) {
+            return reactiveMongoTemplate.findAll(entityClass);
+        }
+        return Flux.from(collection(reactiveMongoTemplate, entityClass, readPreference).find())
+                .map(document -> reactiveMongoTemplate.getConverter().read(entityClass, document));
+    }
+
+    private static MongoCollection<Document> collection(ReactiveMongoTemplate reactiveMongoTemplate, Class<?> entityClass,
+                                                        ReadPreference readPreference) {
+        return reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(entityClass))
+                .withReadPreference(readPreference);
+    }
+}
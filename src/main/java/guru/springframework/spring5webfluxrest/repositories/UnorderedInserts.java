@@ -0,0 +1,43 @@
+package guru.springframework.spring5webfluxrest.repositories;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.model.InsertManyOptions;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+final class UnorderedInserts {
+
+    private UnorderedInserts() {
+    }
+
+    /**
+     * Writes the entities with one unordered insertMany, so a failing document (a duplicate key for instance)
+     * does not stop the rest of the batch. New documents start at version 0, as they would through {@code save}.
+     * Returns the number of documents actually inserted.
+     */
+    static <T> Mono<Long> insert(ReactiveMongoTemplate reactiveMongoTemplate, List<? extends T> entities, Class<T> entityClass) {
+        if (entities.isEmpty()) {
+            return Mono.just(0L);
+        }
+
+        final MongoConverter converter = reactiveMongoTemplate.getConverter();
+        final List<Document> documents = entities.stream()
+                .map(entity -> {
+                    final Document document = new Document();
+                    converter.write(entity, document);
+                    document.putIfAbsent(VersionedDocuments.VERSION, 0L);
+                    return document;
+                })
+                .collect(Collectors.toList());
+
+        return Mono.from(reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(entityClass))
+                .insertMany(documents, new InsertManyOptions().ordered(false)))
+                .thenReturn((long) documents.size())
+                .onErrorResume(MongoBulkWriteException.class, e -> Mono.just((long) e.getWriteResult().getInsertedCount()));
+    }
+}
@@ -0,0 +1,49 @@
+package guru.springframework.spring5webfluxrest.repositories;
+
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.convert.UpdateMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+final class UnorderedUpserts {
+
+    private UnorderedUpserts() {
+    }
+
+    /**
+     * Applies one update per id with a single unordered bulkWrite, creating the documents that are missing.
+     * The updates are mapped as the template maps them. Returns the number of documents matched or created.
+     */
+    static Mono<Long> upsert(ReactiveMongoTemplate reactiveMongoTemplate, Map<String, Update> updates, Class<?> entityClass) {
+        if (updates.isEmpty()) {
+            return Mono.just(0L);
+        }
+
+        final MongoConverter converter = reactiveMongoTemplate.getConverter();
+        final UpdateMapper updateMapper = new UpdateMapper(converter);
+        final MongoPersistentEntity<?> entity = converter.getMappingContext().getPersistentEntity(entityClass);
+        final UpdateOptions upsert = new UpdateOptions().upsert(true);
+        final List<UpdateOneModel<Document>> writes = updates.entrySet().stream()
+                .map(update -> new UpdateOneModel<Document>(
+                        Filters.eq("_id", ObjectId.isValid(update.getKey()) ? new ObjectId(update.getKey()) : update.getKey()),
+                        updateMapper.getMappedObject(update.getValue().getUpdateObject(), entity),
+                        upsert))
+                .collect(Collectors.toList());
+
+        return Mono.from(reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(entityClass))
+                .bulkWrite(writes, new BulkWriteOptions().ordered(false)))
+                .map(result -> (long) result.getMatchedCount() + result.getUpserts().size());
+    }
+}
@@ -2,6 +2,11 @@ package guru.springframework.spring5webfluxrest.repositories;
 
 import guru.springframework.spring5webfluxrest.domain.Vendor;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
 
-public interface VendorRepository extends ReactiveMongoRepository<Vendor, String> {
+public interface VendorRepository extends ReactiveMongoRepository<Vendor, String>, VendorRepositoryCustom {
+
+    Flux<Vendor> findByLastName(String lastName);
+
+    Flux<Vendor> findByLastNameAndFirstName(String lastName, String firstName);
 }
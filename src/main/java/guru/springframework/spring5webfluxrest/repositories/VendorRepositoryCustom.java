@@ -0,0 +1,43 @@
+package guru.springframework.spring5webfluxrest.repositories;
+
+import guru.springframework.spring5webfluxrest.domain.CategorySummary;
+import guru.springframework.spring5webfluxrest.domain.Vendor;
+import org.bson.types.ObjectId;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+public interface VendorRepositoryCustom extends ExternalIdOperations<Vendor> {
+
+    /**
+     * Takes the place of the CRUD method, so lists can be read from secondaries. Reads by id stay on the primary:
+     * they load the cache, which would otherwise keep serving the version a lagging secondary had.
+     */
+    Flux<Vendor> findAll();
+
+    Flux<Vendor> findPage(String afterId, int limit);
+
+    Flux<Vendor> searchByName(String prefix, int limit);
+
+    Flux<Vendor> findByCategory(ObjectId categoryId);
+
+    Flux<CategorySummary> summarizeByCategory(List<ObjectId> categoryIds, int listed);
+
+    Flux<Vendor> findModifiedSince(Instant since);
+
+    Flux<Map<String, Object>> export(String afterId, List<String> fields, int batchSize);
+
+    Mono<Long> insertUnordered(List<Vendor> vendors);
+
+    Mono<Long> findVersion(String id);
+
+    Mono<Vendor> replace(String id, Vendor vendor, Long expectedVersion);
+
+    @Override
+    Mono<Long> replaceAll(Map<String, Vendor> vendors);
+
+    Mono<Vendor> patch(String id, Vendor vendor, Long expectedVersion);
+}
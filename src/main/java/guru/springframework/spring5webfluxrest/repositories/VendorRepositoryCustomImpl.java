@@ -0,0 +1,201 @@
+package guru.springframework.spring5webfluxrest.repositories;
+
+import com.mongodb.ReadPreference;
+import guru.springframework.spring5webfluxrest.config.MongoClientProperties;
+import guru.springframework.spring5webfluxrest.domain.Category;
+import guru.springframework.spring5webfluxrest.domain.CategorySummary;
+import guru.springframework.spring5webfluxrest.domain.Vendor;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.data.mongodb.core.FindAndModifyOptions.options;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+public class VendorRepositoryCustomImpl implements VendorRepositoryCustom {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final ReadPreference readPreference;
+
+    public VendorRepositoryCustomImpl(ReactiveMongoTemplate reactiveMongoTemplate, MongoClientProperties mongoClientProperties) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.readPreference = mongoClientProperties.toReadPreference();
+    }
+
+    @Override
+    public Flux<Vendor> findAll() {
+        return RoutedReads.findAll(reactiveMongoTemplate, Vendor.class, readPreference);
+    }
+
+    /**
+     * Keyset pagination: reads at most {@code limit} documents in id order, starting after {@code afterId}
+     * (or from the first one when it is null), so every page is an index range scan on {@code _id}.
+     */
+    @Override
+    public Flux<Vendor> findPage(String afterId, int limit) {
+        final Query query = new Query().with(Sort.by("id")).limit(limit);
+        if (afterId != null) {
+            query.addCriteria(where("id").gt(afterId));
+        }
+        return reactiveMongoTemplate.find(query, Vendor.class);
+    }
+
+    /**
+     * Vendors whose last or first name starts with {@code prefix}, ignoring case. Last name matches come first;
+     * both range scans run at once and are cancelled as soon as {@code limit} distinct vendors are found.
+     */
+    @Override
+    public Flux<Vendor> searchByName(String prefix, int limit) {
+        final Flux<Vendor> byLastName = reactiveMongoTemplate.find(
+                PrefixSearch.query("lastName", prefix, Sort.by("lastName", "firstName"), limit), Vendor.class);
+        final Flux<Vendor> byFirstName = reactiveMongoTemplate.find(
+                PrefixSearch.query("firstName", prefix, Sort.by("firstName", "lastName"), limit), Vendor.class);
+        return Flux.mergeSequential(byLastName, byFirstName)
+                .distinct(Vendor::getId)
+                .take(limit);
+    }
+
+    /**
+     * The vendors of a category in name order, an index range scan on {@code vendor_category}.
+     */
+    @Override
+    public Flux<Vendor> findByCategory(ObjectId categoryId) {
+        return reactiveMongoTemplate.find(new Query(where("categoryId").is(categoryId))
+                .with(Sort.by("lastName", "firstName")), Vendor.class);
+    }
+
+    /**
+     * Every category with vendors, or only the given ones, with its vendor count and its first {@code listed}
+     * vendors in name order, streamed from a single aggregation.
+     */
+    @Override
+    public Flux<CategorySummary> summarizeByCategory(List<ObjectId> categoryIds, int listed) {
+        return reactiveMongoTemplate.aggregate(CategorySummaries.aggregation(
+                reactiveMongoTemplate.getCollectionName(Category.class), reactiveMongoTemplate.getCollectionName(Vendor.class),
+                categoryIds, listed), CategorySummary.class);
+    }
+
+    @Override
+    public Flux<Vendor> findModifiedSince(Instant since) {
+        return reactiveMongoTemplate.find(VersionedDocuments.modifiedSince(since), Vendor.class);
+    }
+
+    @Override
+    public Flux<Map<String, Object>> export(String afterId, List<String> fields, int batchSize) {
+        return Exports.export(reactiveMongoTemplate, Vendor.class, afterId, fields, batchSize);
+    }
+
+    @Override
+    public Flux<Vendor> findByExternalIds(Collection<String> externalIds) {
+        return ExternalIds.findByExternalIds(reactiveMongoTemplate, externalIds, Vendor.class);
+    }
+
+    @Override
+    public Flux<String> findExternalIds() {
+        return ExternalIds.findExternalIds(reactiveMongoTemplate, Vendor.class);
+    }
+
+    @Override
+    public Mono<Long> deleteByExternalIds(Collection<String> externalIds) {
+        return ExternalIds.deleteByExternalIds(reactiveMongoTemplate, externalIds, Vendor.class);
+    }
+
+    @Override
+    public Mono<Long> insertUnordered(List<Vendor> vendors) {
+        return UnorderedInserts.insert(reactiveMongoTemplate, vendors, Vendor.class);
+    }
+
+    @Override
+    public Mono<Long> findVersion(String id) {
+        return VersionedDocuments.findVersion(reactiveMongoTemplate, id, Vendor.class, Vendor::getVersion);
+    }
+
+    /**
+     * Overwrites every field of the document and bumps its version. Without an expected version the document is
+     * created when missing; with one, nothing is written and the result is empty unless the stored version matches.
+     */
+    @Override
+    public Mono<Vendor> replace(String id, Vendor vendor, Long expectedVersion) {
+        return reactiveMongoTemplate.findAndModify(VersionedDocuments.byIdAndVersion(id, expectedVersion),
+                VersionedDocuments.nextVersion(replaceUpdate(vendor), vendor.getLastModified()),
+                options().returnNew(true).upsert(expectedVersion == null), Vendor.class);
+    }
+
+    /**
+     * Replaces each document as {@link #replace} does without an expected version, with one bulk write.
+     */
+    @Override
+    public Mono<Long> replaceAll(Map<String, Vendor> vendors) {
+        final Map<String, Update> updates = new LinkedHashMap<>();
+        vendors.forEach((id, vendor) -> updates.put(id, VersionedDocuments.nextVersion(replaceUpdate(vendor), vendor.getLastModified())));
+        return UnorderedUpserts.upsert(reactiveMongoTemplate, updates, Vendor.class);
+    }
+
+    /**
+     * Applies the non null fields of the given vendor as a single server side {@code $set} and bumps the version,
+     * returning the updated document. When there is nothing to change the stored document is returned as is.
+     * With an expected version the result is empty unless the stored version matches.
+     */
+    @Override
+    public Mono<Vendor> patch(String id, Vendor vendor, Long expectedVersion) {
+        final Update update = patchUpdate(vendor);
+        final Query query = VersionedDocuments.byIdAndVersion(id, expectedVersion);
+        if (update.getUpdateObject().isEmpty()) {
+            return reactiveMongoTemplate.findOne(query, Vendor.class);
+        }
+        return reactiveMongoTemplate.findAndModify(query, VersionedDocuments.nextVersion(update, vendor.getLastModified()),
+                options().returnNew(true), Vendor.class);
+    }
+
+    static Update replaceUpdate(Vendor vendor) {
+        final Update update = new Update();
+        if (vendor.getExternalId() != null) {
+            update.set("externalId", vendor.getExternalId());
+        } else {
+            update.unset("externalId");
+        }
+        if (vendor.getFirstName() != null) {
+            update.set("firstName", vendor.getFirstName());
+        } else {
+            update.unset("firstName");
+        }
+        if (vendor.getLastName() != null) {
+            update.set("lastName", vendor.getLastName());
+        } else {
+            update.unset("lastName");
+        }
+        if (vendor.getCategoryId() != null) {
+            update.set("categoryId", vendor.getCategoryId());
+        } else {
+            update.unset("categoryId");
+        }
+        return update;
+    }
+
+    static Update patchUpdate(Vendor vendor) {
+        final Update update = new Update();
+        if (vendor.getExternalId() != null) {
+            update.set("externalId", vendor.getExternalId());
+        }
+        if (vendor.getFirstName() != null) {
+            update.set("firstName", vendor.getFirstName());
+        }
+        if (vendor.getLastName() != null) {
+            update.set("lastName", vendor.getLastName());
+        }
+        if (vendor.getCategoryId() != null) {
+            update.set("categoryId", vendor.getCategoryId());
+        }
+        return update;
+    }
+}
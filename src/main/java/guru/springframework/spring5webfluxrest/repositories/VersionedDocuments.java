@@ -0,0 +1,77 @@
+package guru.springframework.spring5webfluxrest.repositories;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.function.Function;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Queries and updates on the {@code version} and {@code lastModified} fields. Documents written before the version
+ * existed have none and count as version 0; those without a modification time are older than any stamp.
+ */
+public final class VersionedDocuments {
+
+    static final String VERSION = "version";
+    static final String LAST_MODIFIED = "lastModified";
+
+    private VersionedDocuments() {
+    }
+
+    /**
+     * Matches the document with the given id, and when {@code expectedVersion} is not null only at that version.
+     */
+    static Query byIdAndVersion(String id, Long expectedVersion) {
+        final Criteria criteria = where("id").is(id);
+        if (expectedVersion != null) {
+            if (expectedVersion == 0L) {
+                criteria.and(VERSION).in(0L, null);
+            } else {
+                criteria.and(VERSION).is(expectedVersion);
+            }
+        }
+        return new Query(criteria);
+    }
+
+    /**
+     * Completes the update of a document with the next version and, when the write is stamped, its modification time.
+     */
+    static Update nextVersion(Update update, Instant lastModified) {
+        if (lastModified != null) {
+            update.set(LAST_MODIFIED, lastModified);
+        }
+        return update.inc(VERSION, 1);
+    }
+
+    /**
+     * The documents modified at or after {@code since}, oldest change first.
+     */
+    static Query modifiedSince(Instant since) {
+        return new Query(where(LAST_MODIFIED).gte(since)).with(Sort.by(LAST_MODIFIED, "id"));
+    }
+
+    /**
+     * Reads nothing but the id and the version of a document.
+     */
+    static <T> Mono<Long> findVersion(ReactiveMongoTemplate reactiveMongoTemplate, String id, Class<T> entityClass,
+                                      Function<T, Long> versionExtractor) {
+        final Query query = byIdAndVersion(id, null);
+        query.fields().include(VERSION);
+        return reactiveMongoTemplate.findOne(query, entityClass)
+                .map(document -> versionOf(versionExtractor.apply(document)));
+    }
+
+    /**
+     * The version of a document, 0 for one written before versions existed; both its ETag and the {@code If-Match}
+     * checks against it are built from this.
+     */
+    public static long versionOf(Long version) {
+        return version == null ? 0L : version;
+    }
+}
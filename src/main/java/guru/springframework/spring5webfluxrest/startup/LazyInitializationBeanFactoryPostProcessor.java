@@ -0,0 +1,40 @@
+package guru.springframework.spring5webfluxrest.startup;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Marks the singletons lazy so they are created on first use rather than all during the refresh. Controllers,
+ * repositories and codecs are then created by the first request or runner that needs them. Singletons
+ * implementing {@link SmartInitializingSingleton} stay eager, as their callback only runs for eager singletons.
+ */
+public class LazyInitializationBeanFactoryPostProcessor implements BeanFactoryPostProcessor {
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            final BeanDefinition definition = beanFactory.getBeanDefinition(name);
+            if (!requiresEagerInitialization(definition, beanFactory.getBeanClassLoader())) {
+                definition.setLazyInit(true);
+            }
+        }
+    }
+
+    private static boolean requiresEagerInitialization(BeanDefinition definition, ClassLoader classLoader) {
+        String typeName = definition.getBeanClassName();
+        if (definition instanceof AnnotatedBeanDefinition) {
+            final MethodMetadata factoryMethod = ((AnnotatedBeanDefinition) definition).getFactoryMethodMetadata();
+            if (factoryMethod != null) {
+                typeName = factoryMethod.getReturnTypeName();
+            }
+        }
+        return typeName != null
+                && ClassUtils.isPresent(typeName, classLoader)
+                && SmartInitializingSingleton.class.isAssignableFrom(ClassUtils.resolveClassName(typeName, classLoader));
+    }
+}
@@ -0,0 +1,80 @@
+package guru.springframework.spring5webfluxrest.startup;
+
+import com.mongodb.connection.ServerDescription;
+import com.mongodb.event.ClusterDescriptionChangedEvent;
+import com.mongodb.event.ClusterListenerAdapter;
+import guru.springframework.spring5webfluxrest.startup.StartupTimeline.Milestone;
+import guru.springframework.spring5webfluxrest.startup.StartupTimeline.Phase;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.server.WebFilter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@Slf4j
+@Configuration
+public class StartupConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "api.startup.lazy-initialization", havingValue = "true")
+    static LazyInitializationBeanFactoryPostProcessor lazyInitializationBeanFactoryPostProcessor() {
+        return new LazyInitializationBeanFactoryPostProcessor();
+    }
+
+    /**
+     * Times the Mongo connection from the creation of the client until a server answers the first heartbeat.
+     */
+    @Bean
+    @ConditionalOnBean(StartupTimeline.class)
+    MongoClientSettingsBuilderCustomizer mongoConnectTiming(StartupTimeline startupTimeline) {
+        return settings -> {
+            startupTimeline.reached(Milestone.MONGO_CLIENT_CREATED);
+            settings.applyToClusterSettings(cluster -> cluster.addClusterListener(new ClusterListenerAdapter() {
+                @Override
+                public void clusterDescriptionChanged(ClusterDescriptionChangedEvent event) {
+                    if (event.getNewDescription().getServerDescriptions().stream().anyMatch(ServerDescription::isOk)) {
+                        startupTimeline.reached(Milestone.MONGO_CONNECTED);
+                    }
+                }
+            }));
+        };
+    }
+
+    @Bean
+    @ConditionalOnBean(StartupTimeline.class)
+    WebFilter firstRequestTiming(StartupTimeline startupTimeline) {
+        return (exchange, chain) -> {
+            if (startupTimeline.hasReached(Milestone.FIRST_REQUEST_SERVED)) {
+                return chain.filter(exchange);
+            }
+            return chain.filter(exchange)
+                    .doFinally(signal -> {
+                        if (!startupTimeline.hasReached(Milestone.FIRST_REQUEST_SERVED)) {
+                            startupTimeline.reached(Milestone.FIRST_REQUEST_SERVED);
+                            log.info("First request served, {}", startupTimeline.report());
+                        }
+                    });
+        };
+    }
+
+    /**
+     * Publishes every phase as {@code application.startup} so time to first request can be followed between releases.
+     */
+    @Bean
+    @ConditionalOnBean(StartupTimeline.class)
+    MeterBinder startupMetrics(StartupTimeline startupTimeline) {
+        return registry -> Stream.of(Phase.values())
+                .forEach(phase -> TimeGauge.builder("application.startup", startupTimeline, TimeUnit.MILLISECONDS,
+                        timeline -> timeline.duration(phase).map(duration -> (double) duration.toMillis()).orElse(Double.NaN))
+                        .description("Duration of a startup phase")
+                        .tag("phase", phase.getTag())
+                        .register(registry));
+    }
+}
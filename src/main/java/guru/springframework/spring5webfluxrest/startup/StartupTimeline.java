@@ -0,0 +1,84 @@
+package guru.springframework.spring5webfluxrest.startup;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Wall clock times of the startup milestones, from the JVM start to the first request served, and the phases
+ * measured between them.
+ */
+public class StartupTimeline {
+
+    public enum Milestone {
+        JVM_STARTED, APPLICATION_STARTING, CONTEXT_PREPARED, CONTEXT_REFRESHED, WEB_SERVER_STARTED,
+        MONGO_CLIENT_CREATED, MONGO_CONNECTED, APPLICATION_STARTED, APPLICATION_READY, FIRST_REQUEST_SERVED
+    }
+
+    public enum Phase {
+        JVM("jvm", Milestone.JVM_STARTED, Milestone.APPLICATION_STARTING),
+        BOOT("boot", Milestone.APPLICATION_STARTING, Milestone.CONTEXT_PREPARED),
+        BEAN_INITIALIZATION("bean-initialization", Milestone.CONTEXT_PREPARED, Milestone.CONTEXT_REFRESHED),
+        NETTY_BIND("netty-bind", Milestone.CONTEXT_REFRESHED, Milestone.WEB_SERVER_STARTED),
+        MONGO_CONNECT("mongo-connect", Milestone.MONGO_CLIENT_CREATED, Milestone.MONGO_CONNECTED),
+        INDEXES_AND_SEEDING("indexes-and-seeding", Milestone.APPLICATION_STARTED, Milestone.APPLICATION_READY),
+        TIME_TO_READY("time-to-ready", Milestone.JVM_STARTED, Milestone.APPLICATION_READY),
+        TIME_TO_FIRST_REQUEST("time-to-first-request", Milestone.JVM_STARTED, Milestone.FIRST_REQUEST_SERVED);
+
+        private final String tag;
+        private final Milestone from;
+        private final Milestone to;
+
+        Phase(String tag, Milestone from, Milestone to) {
+            this.tag = tag;
+            this.from = from;
+            this.to = to;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    private final Map<Milestone, Long> milestones = new ConcurrentHashMap<>();
+
+    public StartupTimeline() {
+        this(ManagementFactory.getRuntimeMXBean().getStartTime());
+    }
+
+    StartupTimeline(long jvmStartMillis) {
+        milestones.put(Milestone.JVM_STARTED, jvmStartMillis);
+    }
+
+    /**
+     * Records the milestone as reached now, unless it was reached before.
+     */
+    public void reached(Milestone milestone) {
+        reached(milestone, System.currentTimeMillis());
+    }
+
+    void reached(Milestone milestone, long epochMillis) {
+        milestones.putIfAbsent(milestone, epochMillis);
+    }
+
+    public boolean hasReached(Milestone milestone) {
+        return milestones.containsKey(milestone);
+    }
+
+    public Optional<Duration> duration(Phase phase) {
+        final Long from = milestones.get(phase.from);
+        final Long to = milestones.get(phase.to);
+        return from == null || to == null ? Optional.empty() : Optional.of(Duration.ofMillis(to - from));
+    }
+
+    public String report() {
+        return Stream.of(Phase.values())
+                .filter(phase -> duration(phase).isPresent())
+                .map(phase -> phase.tag + "=" + duration(phase).get().toMillis() + "ms")
+                .collect(Collectors.joining(", "));
+    }
+}
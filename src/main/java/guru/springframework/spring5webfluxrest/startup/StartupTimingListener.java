@@ -0,0 +1,51 @@
+package guru.springframework.spring5webfluxrest.startup;
+
+import guru.springframework.spring5webfluxrest.startup.StartupTimeline.Milestone;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationPreparedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.context.event.ApplicationStartingEvent;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+/**
+ * Registered through {@code spring.factories} so it sees the application start before any context exists.
+ * Shares its {@link StartupTimeline} with the context as a bean, and logs the timings once the application is ready.
+ * With {@code api.startup.exit-on-ready=true} the application then exits, which is how the class list of the
+ * class data sharing archive is recorded.
+ */
+@Slf4j
+public class StartupTimingListener implements ApplicationListener<ApplicationEvent> {
+
+    static final String EXIT_ON_READY = "api.startup.exit-on-ready";
+
+    private final StartupTimeline timeline = new StartupTimeline();
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof ApplicationStartingEvent) {
+            timeline.reached(Milestone.APPLICATION_STARTING);
+        } else if (event instanceof ApplicationPreparedEvent) {
+            timeline.reached(Milestone.CONTEXT_PREPARED);
+            ((ApplicationPreparedEvent) event).getApplicationContext().getBeanFactory()
+                    .registerSingleton("startupTimeline", timeline);
+        } else if (event instanceof ContextRefreshedEvent) {
+            timeline.reached(Milestone.CONTEXT_REFRESHED);
+        } else if (event instanceof WebServerInitializedEvent) {
+            timeline.reached(Milestone.WEB_SERVER_STARTED);
+        } else if (event instanceof ApplicationStartedEvent) {
+            timeline.reached(Milestone.APPLICATION_STARTED);
+        } else if (event instanceof ApplicationReadyEvent) {
+            timeline.reached(Milestone.APPLICATION_READY);
+            log.info("Startup timings: {}", timeline.report());
+            final ApplicationReadyEvent ready = (ApplicationReadyEvent) event;
+            if (ready.getApplicationContext().getEnvironment().getProperty(EXIT_ON_READY, Boolean.class, false)) {
+                System.exit(SpringApplication.exit(ready.getApplicationContext()));
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package guru.springframework.spring5webfluxrest.summary;
+
+import guru.springframework.spring5webfluxrest.domain.Vendor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonValue;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Records every change of the vendor collection in the {@link VendorSummaries}, one event after the other. The
+ * stream is resumed after the last applied event; when that is no longer possible the summaries are rebuilt,
+ * since events were missed.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "api.summary.source", havingValue = "change-stream")
+public class SummaryChangeStreamListener {
+
+    private static final Duration FIRST_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final VendorSummaries vendorSummaries;
+    private final AtomicReference<BsonValue> resumeToken = new AtomicReference<>();
+    private volatile Disposable subscription;
+
+    public SummaryChangeStreamListener(ReactiveMongoTemplate reactiveMongoTemplate, VendorSummaries vendorSummaries) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.vendorSummaries = vendorSummaries;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        subscription = watch().subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    Flux<ChangeStreamEvent<Vendor>> watch() {
+        final String collectionName = reactiveMongoTemplate.getCollectionName(Vendor.class);
+        return Flux.defer(() -> {
+            final AtomicBoolean resumed = new AtomicBoolean(resumeToken.get() == null);
+            return reactiveMongoTemplate.changeStream(collectionName, options(), Vendor.class)
+                    .concatMap(event -> {
+                        resumed.set(true);
+                        return apply(event)
+                                .doOnSuccess(applied -> resumeToken.set(event.getResumeToken()))
+                                .thenReturn(event);
+                    })
+                    .onErrorResume(e -> {
+                        log.warn("Change stream on {} failed", collectionName, e);
+                        if (resumed.get()) {
+                            return Mono.error(e);
+                        }
+                        // the stored token could not be resumed from, start over from the current time
+                        resumeToken.set(null);
+                        return vendorSummaries.rebuild().then(Mono.error(e));
+                    });
+        }).retryBackoff(Long.MAX_VALUE, FIRST_BACKOFF, MAX_BACKOFF);
+    }
+
+    private ChangeStreamOptions options() {
+        final ChangeStreamOptions.ChangeStreamOptionsBuilder options = ChangeStreamOptions.builder()
+                .returnFullDocumentOnUpdate();
+        final BsonValue token = resumeToken.get();
+        if (token != null) {
+            options.resumeToken(token);
+        }
+        return options.build();
+    }
+
+    private Mono<Void> apply(ChangeStreamEvent<Vendor> event) {
+        switch (event.getOperationType()) {
+            case INSERT:
+            case UPDATE:
+            case REPLACE:
+                final Vendor vendor = event.getBody();
+                // without a body the vendor was deleted since, which a later event tells
+                return vendor == null ? Mono.empty() : vendorSummaries.record(vendor.getId(), vendor);
+            case DELETE:
+                final BsonValue id = event.getRaw().getDocumentKey().get("_id");
+                return vendorSummaries.remove(id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue());
+            default:
+                return vendorSummaries.rebuild().then();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package guru.springframework.spring5webfluxrest.summary;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties("api.summary")
+public class SummaryProperties {
+
+    /**
+     * Where the vendor summaries learn about writes.
+     */
+    private Source source = Source.WRITES;
+
+    /**
+     * Vendors read and key documents written per batch by a rebuild.
+     */
+    private int rebuildBatchSize = 1_000;
+
+    public enum Source {
+
+        /**
+         * The vendor write paths of this node record what they wrote.
+         */
+        WRITES,
+
+        /**
+         * The change stream of the vendor collection, which sees the writes of every node and of other clients.
+         * Needs Mongo to run as a replica set.
+         */
+        CHANGE_STREAM
+    }
+}
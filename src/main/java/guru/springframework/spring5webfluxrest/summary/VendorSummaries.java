@@ -0,0 +1,250 @@
+package guru.springframework.spring5webfluxrest.summary;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import guru.springframework.spring5webfluxrest.domain.Vendor;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.FindAndModifyOptions.options;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Vendor counts by last name initial and by category, kept up to date in the small {@code vendorSummary}
+ * collection so they are read without scanning the vendors. Each count is a document with the id
+ * {@code dimension:key}. The keys a vendor was last counted under are kept in {@code vendorSummaryKey}, so
+ * recording a vendor moves it from its previous keys to its current ones and recording the same vendor twice
+ * changes nothing. Concurrent writes to one vendor may leave its counts behind; {@link #rebuild} recounts them.
+ */
+@Slf4j
+@AllArgsConstructor
+@Component
+public class VendorSummaries {
+
+    public static final String BY_INITIAL = "initial";
+    public static final String BY_CATEGORY = "category";
+
+    static final String SUMMARY_COLLECTION = "vendorSummary";
+    static final String KEY_COLLECTION = "vendorSummaryKey";
+    static final String COUNT = "count";
+
+    private static final char SEPARATOR = ':';
+    private static final List<String> DIMENSIONS = Arrays.asList(BY_INITIAL, BY_CATEGORY);
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final SummaryProperties summaryProperties;
+
+    /**
+     * Records a vendor saved through the API, unless the summaries follow the change stream. A failure to record
+     * is logged and does not fail the write.
+     */
+    public Mono<Vendor> written(Vendor vendor) {
+        return written(vendor.getId(), vendor).thenReturn(vendor);
+    }
+
+    public Mono<Void> written(String id, Vendor vendor) {
+        if (summaryProperties.getSource() != SummaryProperties.Source.WRITES) {
+            return Mono.empty();
+        }
+        return record(id, vendor)
+                .onErrorResume(e -> {
+                    log.warn("Could not record vendor {} in the summaries", id, e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Takes a vendor deleted through the API off its counts, unless the summaries follow the change stream.
+     */
+    public Mono<Void> removed(String id) {
+        if (summaryProperties.getSource() != SummaryProperties.Source.WRITES) {
+            return Mono.empty();
+        }
+        return remove(id)
+                .onErrorResume(e -> {
+                    log.warn("Could not remove vendor {} from the summaries", id, e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Wraps a batch insert so the inserted vendors are recorded. Ids are given to the vendors up front; when some
+     * of them were not inserted, the stored vendors of the batch are read back and recorded instead.
+     */
+    public Function<List<Vendor>, Mono<Long>> recording(Function<List<Vendor>, Mono<Long>> insert) {
+        if (summaryProperties.getSource() != SummaryProperties.Source.WRITES) {
+            return insert;
+        }
+        return vendors -> {
+            vendors.stream()
+                    .filter(vendor -> vendor.getId() == null)
+                    .forEach(vendor -> vendor.setId(new ObjectId().toHexString()));
+            return insert.apply(vendors)
+                    .flatMap(inserted -> (inserted == vendors.size() ? Flux.fromIterable(vendors) : stored(vendors))
+                            .concatMap(vendor -> written(vendor.getId(), vendor))
+                            .then(Mono.just(inserted)));
+        };
+    }
+
+    /**
+     * Counts the vendor under its current keys, taking it off the keys it was counted under before.
+     */
+    public Mono<Void> record(String id, Vendor vendor) {
+        final Map<String, String> keys = keys(vendor.getLastName(), vendor.getCategoryId());
+        final Update update = new Update();
+        DIMENSIONS.forEach(dimension -> {
+            if (keys.containsKey(dimension)) {
+                update.set(dimension, keys.get(dimension));
+            } else {
+                update.unset(dimension);
+            }
+        });
+        return reactiveMongoTemplate.findAndModify(new Query(where("_id").is(id)), update, options().upsert(true),
+                Document.class, KEY_COLLECTION)
+                .map(VendorSummaries::keys)
+                .defaultIfEmpty(Collections.emptyMap())
+                .flatMap(previous -> move(previous, keys));
+    }
+
+    public Mono<Void> remove(String id) {
+        return reactiveMongoTemplate.findAndRemove(new Query(where("_id").is(id)), Document.class, KEY_COLLECTION)
+                .flatMap(previous -> move(keys(previous), Collections.emptyMap()));
+    }
+
+    /**
+     * The non zero counts of a dimension by key in key order, one range scan of the summary collection.
+     */
+    public Mono<Map<String, Long>> counts(String dimension) {
+        final String prefix = dimension + SEPARATOR;
+        final Query query = new Query(where("_id").gte(prefix).lt(dimension + (char) (SEPARATOR + 1)))
+                .with(Sort.by("_id"));
+        return reactiveMongoTemplate.find(query, Document.class, SUMMARY_COLLECTION)
+                .filter(summary -> count(summary) > 0)
+                .collect(LinkedHashMap::new, (counts, summary) ->
+                        counts.put(summary.getString("_id").substring(prefix.length()), count(summary)));
+    }
+
+    /**
+     * Recounts every vendor, to recover from counts left behind or after vendors were written around the API.
+     * The counts are replaced once all vendors are read; the result is the number of vendors counted.
+     */
+    public Mono<Long> rebuild() {
+        final Map<String, Long> counts = new HashMap<>();
+        final Query query = new Query().cursorBatchSize(summaryProperties.getRebuildBatchSize());
+        query.fields().include("lastName").include("categoryId");
+        return reactiveMongoTemplate.dropCollection(KEY_COLLECTION)
+                .thenMany(reactiveMongoTemplate.find(query, Document.class, reactiveMongoTemplate.getCollectionName(Vendor.class)))
+                .map(vendor -> {
+                    final Object categoryId = vendor.get("categoryId");
+                    final Map<String, String> keys = keys(vendor.getString("lastName"),
+                            categoryId instanceof ObjectId ? (ObjectId) categoryId : null);
+                    keys.forEach((dimension, key) -> counts.merge(summaryId(dimension, key), 1L, Long::sum));
+                    final Document recorded = new Document("_id", vendor.get("_id"));
+                    recorded.putAll(keys);
+                    return recorded;
+                })
+                .buffer(summaryProperties.getRebuildBatchSize())
+                .concatMap(this::insertKeys)
+                .reduce(0L, Long::sum)
+                .flatMap(vendors -> replaceCounts(counts).thenReturn(vendors))
+                .doOnNext(vendors -> log.info("Vendor summaries rebuilt from {} vendors", vendors));
+    }
+
+    static Map<String, String> keys(@Nullable String lastName, @Nullable ObjectId categoryId) {
+        final Map<String, String> keys = new HashMap<>();
+        final String trimmed = lastName == null ? "" : lastName.trim();
+        if (!trimmed.isEmpty()) {
+            keys.put(BY_INITIAL, new String(Character.toChars(trimmed.codePointAt(0))).toUpperCase(Locale.ROOT));
+        }
+        if (categoryId != null) {
+            keys.put(BY_CATEGORY, categoryId.toHexString());
+        }
+        return keys;
+    }
+
+    static String summaryId(String dimension, String key) {
+        return dimension + SEPARATOR + key;
+    }
+
+    private static Map<String, String> keys(Document recorded) {
+        final Map<String, String> keys = new HashMap<>();
+        DIMENSIONS.stream()
+                .filter(dimension -> recorded.getString(dimension) != null)
+                .forEach(dimension -> keys.put(dimension, recorded.getString(dimension)));
+        return keys;
+    }
+
+    private static long count(Document summary) {
+        final Object count = summary.get(COUNT);
+        return count instanceof Number ? ((Number) count).longValue() : 0L;
+    }
+
+    private Mono<Void> move(Map<String, String> previous, Map<String, String> current) {
+        return Flux.fromIterable(DIMENSIONS)
+                .filter(dimension -> !Objects.equals(previous.get(dimension), current.get(dimension)))
+                .flatMap(dimension -> Mono.when(
+                        increment(dimension, previous.get(dimension), -1L),
+                        increment(dimension, current.get(dimension), 1L)))
+                .then();
+    }
+
+    private Mono<Void> increment(String dimension, @Nullable String key, long delta) {
+        if (key == null) {
+            return Mono.empty();
+        }
+        return reactiveMongoTemplate.upsert(new Query(where("_id").is(summaryId(dimension, key))),
+                new Update().inc(COUNT, delta), SUMMARY_COLLECTION).then();
+    }
+
+    private Flux<Vendor> stored(List<Vendor> vendors) {
+        return reactiveMongoTemplate.find(new Query(where("id").in(vendors.stream()
+                .map(Vendor::getId)
+                .collect(Collectors.toList()))), Vendor.class);
+    }
+
+    private Mono<Long> insertKeys(List<Document> recorded) {
+        // a vendor written since the rebuild started is already recorded with its newer keys
+        return Mono.from(reactiveMongoTemplate.getCollection(KEY_COLLECTION)
+                .insertMany(recorded, new InsertManyOptions().ordered(false)))
+                .thenReturn((long) recorded.size())
+                .onErrorResume(MongoBulkWriteException.class, e -> Mono.just((long) recorded.size()));
+    }
+
+    private Mono<Void> replaceCounts(Map<String, Long> counts) {
+        final Mono<Void> removeStale = reactiveMongoTemplate.remove(
+                new Query(where("_id").nin(counts.keySet())), SUMMARY_COLLECTION).then();
+        if (counts.isEmpty()) {
+            return removeStale;
+        }
+        return Mono.from(reactiveMongoTemplate.getCollection(SUMMARY_COLLECTION).bulkWrite(counts.entrySet().stream()
+                .map(count -> new ReplaceOneModel<>(Filters.eq("_id", count.getKey()),
+                        new Document("_id", count.getKey()).append(COUNT, count.getValue()),
+                        new ReplaceOptions().upsert(true)))
+                .collect(Collectors.toList())))
+                .then(removeStale);
+    }
+}
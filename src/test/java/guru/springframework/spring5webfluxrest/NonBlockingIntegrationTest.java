@@ -0,0 +1,107 @@
+package guru.springframework.spring5webfluxrest;
+
+import guru.springframework.spring5webfluxrest.domain.Category;
+import guru.springframework.spring5webfluxrest.domain.Vendor;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.blockhound.BlockHound;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+/**
+ * Drives every endpoint against the running server with BlockHound installed, so any blocking call made
+ * from a Netty event loop or a non blocking Reactor scheduler fails the request.
+ * Runs from the {@code blockHoundTest} task rather than {@code test}, as the agent stays installed for the whole JVM.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class NonBlockingIntegrationTest {
+
+    static {
+        BlockHound.builder()
+                .nonBlockingThreadPredicate(current -> current.or(thread -> thread.getName().startsWith("reactor-http")))
+                .install();
+    }
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    public void categoryEndpointsDoNotBlock() {
+        final Category category = webTestClient.get()
+                .uri("/api/v1/categories")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Category.class)
+                .returnResult()
+                .getResponseBody()
+                .get(0);
+
+        webTestClient.get()
+                .uri("/api/v1/categories/{id}", category.getId())
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.post()
+                .uri("/api/v1/categories")
+                .body(Mono.just(Category.builder().description(UUID.randomUUID().toString()).build()), Category.class)
+                .exchange()
+                .expectStatus().isCreated();
+
+        webTestClient.put()
+                .uri("/api/v1/categories/{id}", category.getId())
+                .body(Mono.just(Category.builder().description(category.getDescription()).build()), Category.class)
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.patch()
+                .uri("/api/v1/categories/{id}", category.getId())
+                .body(Mono.just(Category.builder().description(category.getDescription()).build()), Category.class)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.description").isEqualTo(category.getDescription());
+    }
+
+    @Test
+    public void vendorEndpointsDoNotBlock() {
+        final Vendor vendor = webTestClient.get()
+                .uri("/api/v1/vendors")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Vendor.class)
+                .returnResult()
+                .getResponseBody()
+                .get(0);
+
+        webTestClient.get()
+                .uri("/api/v1/vendors/{id}", vendor.getId())
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.post()
+                .uri("/api/v1/vendors")
+                .body(Mono.just(Vendor.builder().firstName("Luis Alberto").lastName("Spinetta").build()), Vendor.class)
+                .exchange()
+                .expectStatus().isCreated();
+
+        webTestClient.put()
+                .uri("/api/v1/vendors/{id}", vendor.getId())
+                .body(Mono.just(Vendor.builder().firstName(vendor.getFirstName()).lastName(vendor.getLastName()).build()), Vendor.class)
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.patch()
+                .uri("/api/v1/vendors/{id}", vendor.getId())
+                .body(Mono.just(Vendor.builder().lastName(vendor.getLastName()).build()), Vendor.class)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.firstName").isEqualTo(vendor.getFirstName());
+    }
+}
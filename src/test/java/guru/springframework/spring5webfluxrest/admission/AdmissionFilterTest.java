@@ -0,0 +1,104 @@
+package guru.springframework.spring5webfluxrest.admission;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class AdmissionFilterTest {
+
+    private final AdmissionProperties properties = new AdmissionProperties();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger passed = new AtomicInteger();
+    private final WebFilterChain chain = exchange -> Mono.fromRunnable(passed::incrementAndGet);
+
+    private AdmissionFilter admissionFilter;
+
+    @Before
+    public void setUp() {
+        properties.setWritesPerSecond(1);
+        properties.setBurst(2);
+        properties.setClientHeader("X-Api-Key");
+        admissionFilter = new AdmissionFilter(properties);
+        admissionFilter.bindTo(meterRegistry);
+    }
+
+    @Test
+    public void limitsTheWritesOfEachClient() {
+        assertNull(filter(post("first")).getResponse().getStatusCode());
+        assertNull(filter(post("first")).getResponse().getStatusCode());
+        final MockServerWebExchange limited = filter(post("first"));
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, limited.getResponse().getStatusCode());
+        assertEquals("1", limited.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertNull(filter(post("second")).getResponse().getStatusCode());
+        assertEquals(3, passed.get());
+        assertEquals(3, meterRegistry.get(AdmissionFilter.METRIC_NAME).tag("outcome", "admitted").functionCounter().count(), 0);
+        assertEquals(1, meterRegistry.get(AdmissionFilter.METRIC_NAME).tag("outcome", "rate_limited").functionCounter().count(), 0);
+    }
+
+    @Test
+    public void leavesReadsAlone() {
+        for (int i = 0; i < 5; i++) {
+            filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/vendors").header("X-Api-Key", "first")));
+        }
+
+        assertEquals(5, passed.get());
+    }
+
+    @Test
+    public void shedsWritesOverTheConcurrencyCap() {
+        properties.setBurst(10);
+        properties.setMaxConcurrentWrites(1);
+        final MonoProcessor<Void> firstWrite = MonoProcessor.create();
+        admissionFilter.filter(post("first"), exchange -> firstWrite).subscribe();
+
+        final MockServerWebExchange shed = filter(post("second"));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, shed.getResponse().getStatusCode());
+        assertEquals("1", shed.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(1, meterRegistry.get(AdmissionFilter.IN_FLIGHT_METRIC_NAME).gauge().value(), 0);
+
+        firstWrite.onComplete();
+
+        assertNull(filter(post("second")).getResponse().getStatusCode());
+        assertEquals(1, meterRegistry.get(AdmissionFilter.METRIC_NAME).tag("outcome", "shed").functionCounter().count(), 0);
+    }
+
+    @Test
+    public void shedWritesKeepTheirToken() {
+        properties.setBurst(1);
+        properties.setMaxConcurrentWrites(1);
+        final MonoProcessor<Void> firstWrite = MonoProcessor.create();
+        admissionFilter.filter(post("first"), exchange -> firstWrite).subscribe();
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, filter(post("second")).getResponse().getStatusCode());
+        firstWrite.onComplete();
+
+        assertNull(filter(post("second")).getResponse().getStatusCode());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, filter(post("second")).getResponse().getStatusCode());
+        assertEquals(0, meterRegistry.get(AdmissionFilter.IN_FLIGHT_METRIC_NAME).gauge().value(), 0);
+    }
+
+    private MockServerWebExchange filter(MockServerWebExchange exchange) {
+        StepVerifier.create(admissionFilter.filter(exchange, chain)).verifyComplete();
+        return exchange;
+    }
+
+    private static MockServerWebExchange post(String client) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/api/v1/vendors").header("X-Api-Key", client));
+    }
+}
@@ -0,0 +1,33 @@
+package guru.springframework.spring5webfluxrest.admission;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class TokenBucketTest {
+
+    @Test
+    public void allowsABurstThenTheRate() {
+        final TokenBucket bucket = new TokenBucket(10, 3, 0);
+
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), bucket.tryAcquire(0));
+
+        assertEquals(0, bucket.tryAcquire(TimeUnit.MILLISECONDS.toNanos(100)));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), bucket.tryAcquire(TimeUnit.MILLISECONDS.toNanos(150)));
+    }
+
+    @Test
+    public void fillsUpToTheBurstOnly() {
+        final TokenBucket bucket = new TokenBucket(10, 2, 0);
+        final long later = TimeUnit.SECONDS.toNanos(60);
+
+        assertEquals(0, bucket.tryAcquire(later));
+        assertEquals(0, bucket.tryAcquire(later));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), bucket.tryAcquire(later));
+    }
+}
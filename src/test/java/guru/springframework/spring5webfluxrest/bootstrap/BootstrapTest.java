@@ -0,0 +1,103 @@
+package guru.springframework.spring5webfluxrest.bootstrap;
+
+import guru.springframework.spring5webfluxrest.bulk.BulkIngestProperties;
+import guru.springframework.spring5webfluxrest.bulk.BulkIngester;
+import guru.springframework.spring5webfluxrest.repositories.CategoryRepository;
+import guru.springframework.spring5webfluxrest.repositories.VendorRepository;
+import guru.springframework.spring5webfluxrest.summary.VendorSummaries;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class BootstrapTest {
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @Mock
+    private VendorRepository vendorRepository;
+
+    @Mock
+    private VendorSummaries vendorSummaries;
+
+    private SeedProperties seedProperties;
+
+    private Bootstrap bootstrap;
+
+    private AtomicLong vendorsInserted;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        seedProperties = new SeedProperties();
+        seedProperties.setBatchSize(100);
+        vendorsInserted = new AtomicLong();
+        given(categoryRepository.insertUnordered(anyList()))
+                .willAnswer(invocation -> Mono.just((long) invocation.<List<?>>getArgument(0).size()));
+        given(vendorRepository.insertUnordered(anyList()))
+                .willAnswer(invocation -> {
+                    final int size = invocation.<List<?>>getArgument(0).size();
+                    vendorsInserted.addAndGet(size);
+                    return Mono.just((long) size);
+                });
+        given(vendorSummaries.rebuild()).willReturn(Mono.just(0L));
+        bootstrap = new Bootstrap(categoryRepository, vendorRepository, new BulkIngester(new BulkIngestProperties()), seedProperties,
+                vendorSummaries);
+    }
+
+    @Test
+    public void disabledSeedingDoesNotCount() throws Exception {
+        seedProperties.setEnabled(false);
+
+        bootstrap.run();
+
+        verifyZeroInteractions(categoryRepository, vendorRepository);
+    }
+
+    @Test
+    public void seedsEmptyCollectionsInBatches() {
+        seedProperties.setVendors(1000);
+        given(categoryRepository.count()).willReturn(Mono.just(0L));
+        given(vendorRepository.count()).willReturn(Mono.just(0L));
+
+        StepVerifier.create(bootstrap.seed()).verifyComplete();
+
+        assertEquals(1007, vendorsInserted.get());
+        verify(categoryRepository).insertUnordered(anyList());
+        verify(vendorSummaries).rebuild();
+    }
+
+    @Test
+    public void skipsCollectionsWithDocuments() {
+        given(categoryRepository.count()).willReturn(Mono.just(6L));
+        given(vendorRepository.count()).willReturn(Mono.just(0L));
+
+        StepVerifier.create(bootstrap.seed()).verifyComplete();
+
+        verify(categoryRepository, never()).insertUnordered(anyList());
+        assertEquals(7, vendorsInserted.get());
+    }
+
+    @Test
+    public void generatesDistinctVendors() {
+        seedProperties.setVendors(100);
+
+        StepVerifier.create(bootstrap.vendors().map(vendor -> vendor.getFirstName() + " " + vendor.getLastName()).distinct())
+                .expectNext("Gordon Sumner", "Peter Tosh", "Phil Collins", "Charly Garcia", "Bob Marley", "Gustavo Cerati", "Nile Rodgers")
+                .expectNextCount(100)
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,126 @@
+package guru.springframework.spring5webfluxrest.bootstrap;
+
+import org.bson.Document;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class IndexInitializerTest {
+
+    @Mock
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Mock
+    private ReactiveIndexOperations indexOperations;
+
+    private IndexProperties indexProperties;
+
+    private IndexInitializer indexInitializer;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        given(reactiveMongoTemplate.indexOps(any(Class.class))).willReturn(indexOperations);
+        given(reactiveMongoTemplate.getCollectionName(any(Class.class))).willReturn("vendor");
+        given(indexOperations.ensureIndex(any(IndexDefinition.class))).willReturn(Mono.just("vendor_name"));
+        given(indexOperations.dropIndex(anyString())).willReturn(Mono.empty());
+        indexProperties = new IndexProperties();
+        indexInitializer = new IndexInitializer(reactiveMongoTemplate, indexProperties);
+    }
+
+    @Test
+    public void keepsMatchingIndex() {
+        given(indexOperations.getIndexInfo()).willReturn(Flux.just(vendorNameIndex(Sort.Direction.ASC)));
+
+        StepVerifier.create(indexInitializer.reconcile(IndexInitializer.INDEXES.get(0)))
+                .expectNext("vendor_name")
+                .verifyComplete();
+
+        verify(indexOperations, never()).dropIndex(anyString());
+        verify(indexOperations, never()).ensureIndex(any(IndexDefinition.class));
+    }
+
+    @Test
+    public void recreatesChangedIndex() {
+        given(indexOperations.getIndexInfo()).willReturn(Flux.just(vendorNameIndex(Sort.Direction.DESC)));
+
+        StepVerifier.create(indexInitializer.reconcile(IndexInitializer.INDEXES.get(0)))
+                .expectNext("vendor_name")
+                .verifyComplete();
+
+        verify(indexOperations).dropIndex("vendor_name");
+        verify(indexOperations).ensureIndex(any(IndexDefinition.class));
+    }
+
+    @Test
+    public void createsMissingIndex() {
+        given(indexOperations.getIndexInfo()).willReturn(Flux.empty());
+
+        StepVerifier.create(indexInitializer.reconcile(IndexInitializer.INDEXES.get(0)))
+                .expectNext("vendor_name")
+                .verifyComplete();
+
+        verify(indexOperations).ensureIndex(any(IndexDefinition.class));
+    }
+
+    @Test
+    public void detectsNestedCollectionScan() {
+        assertTrue(IndexInitializer.isCollectionScan(new Document("stage", "SORT")
+                .append("inputStage", new Document("stage", "COLLSCAN"))));
+        assertTrue(IndexInitializer.isCollectionScan(new Document("stage", "SUBPLAN")
+                .append("inputStage", new Document("stage", "OR")
+                        .append("inputStages", Arrays.asList(new Document("stage", "IXSCAN"), new Document("stage", "COLLSCAN"))))));
+        assertFalse(IndexInitializer.isCollectionScan(new Document("stage", "FETCH")
+                .append("inputStage", new Document("stage", "IXSCAN"))));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failsOnCollectionScanWhenConfigured() {
+        indexProperties.setFailOnCollectionScan(true);
+        given(reactiveMongoTemplate.executeCommand(any(Document.class)))
+                .willReturn(Mono.just(explained("COLLSCAN")));
+
+        indexInitializer.verifyQueryPlans();
+    }
+
+    @Test
+    public void warnsOnCollectionScanByDefault() {
+        given(reactiveMongoTemplate.executeCommand(any(Document.class)))
+                .willReturn(Mono.just(explained("COLLSCAN")));
+
+        indexInitializer.verifyQueryPlans();
+
+        verify(reactiveMongoTemplate, times(IndexInitializer.HOT_QUERIES.size()))
+                .executeCommand(any(Document.class));
+    }
+
+    private static IndexInfo vendorNameIndex(Sort.Direction firstNameDirection) {
+        return new IndexInfo(Arrays.asList(IndexField.create("lastName", Sort.Direction.ASC),
+                IndexField.create("firstName", firstNameDirection)), "vendor_name", false, false, null);
+    }
+
+    private static Document explained(String stage) {
+        return new Document("queryPlanner", new Document("winningPlan", new Document("stage", stage)));
+    }
+}
@@ -0,0 +1,89 @@
+package guru.springframework.spring5webfluxrest.bulk;
+
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BulkIngesterTest {
+
+    private BulkIngestProperties properties;
+
+    private BulkIngester bulkIngester;
+
+    @Before
+    public void setUp() throws Exception {
+        properties = new BulkIngestProperties();
+        properties.setBatchSize(3);
+        properties.setMaxBatchesInFlight(2);
+        bulkIngester = new BulkIngester(properties);
+    }
+
+    @Test
+    public void groupsDocumentsBySize() {
+        StepVerifier.create(bulkIngester.ingest(Flux.range(1, 7), batch -> Mono.just((long) batch.size()))
+                .collectSortedList((a, b) -> Long.compare(a.getBatch(), b.getBatch())))
+                .assertNext(results -> {
+                    assertEquals(3, results.size());
+                    assertEquals(3, results.get(0).getSize());
+                    assertEquals(3, results.get(1).getSize());
+                    assertEquals(1, results.get(2).getSize());
+                    assertEquals(7, results.stream().mapToLong(BatchResult::getInserted).sum());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void closesPartialBatchesByTime() {
+        properties.setWindow(Duration.ofMillis(100));
+
+        StepVerifier.withVirtualTime(() -> bulkIngester.ingest(
+                Flux.just(1).concatWith(Flux.just(2).delaySubscription(Duration.ofSeconds(1))),
+                batch -> Mono.just((long) batch.size())))
+                .thenAwait(Duration.ofMillis(100))
+                .expectNextMatches(result -> result.getBatch() == 0 && result.getSize() == 1)
+                .thenAwait(Duration.ofSeconds(1))
+                .expectNextMatches(result -> result.getBatch() == 1 && result.getSize() == 1)
+                .verifyComplete();
+    }
+
+    @Test
+    public void boundsBatchesInFlight() {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        StepVerifier.create(bulkIngester.ingest(Flux.range(1, 30), (List<Integer> batch) -> Mono.fromCallable(() -> {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    return (long) batch.size();
+                })
+                .delayElement(Duration.ofMillis(10))
+                .doOnNext(inserted -> inFlight.decrementAndGet())))
+                .expectNextCount(10)
+                .verifyComplete();
+
+        assertTrue(maxInFlight.get() <= 2);
+    }
+
+    @Test
+    public void reportsPartialAndFailedBatches() {
+        StepVerifier.create(bulkIngester.ingest(Flux.range(1, 6),
+                batch -> batch.contains(1) ? Mono.just(2L) : Mono.error(new IllegalStateException("connection lost")))
+                .collectSortedList((a, b) -> Long.compare(a.getBatch(), b.getBatch())))
+                .assertNext(results -> {
+                    assertEquals(2, results.get(0).getInserted());
+                    assertEquals(1, results.get(0).getFailed());
+                    assertEquals(0, results.get(1).getInserted());
+                    assertEquals(3, results.get(1).getFailed());
+                    assertEquals("connection lost", results.get(1).getError());
+                })
+                .verifyComplete();
+    }
+}
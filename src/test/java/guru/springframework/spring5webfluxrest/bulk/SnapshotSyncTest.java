@@ -0,0 +1,135 @@
+package guru.springframework.spring5webfluxrest.bulk;
+
+import guru.springframework.spring5webfluxrest.domain.Vendor;
+import guru.springframework.spring5webfluxrest.repositories.ExternalIdOperations;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class SnapshotSyncTest {
+
+    @Mock
+    private ExternalIdOperations<Vendor> repository;
+
+    private SnapshotSync snapshotSync;
+
+    private List<String> written;
+
+    private List<String> deleted;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        snapshotSync = new SnapshotSync(new BulkIngestProperties());
+        written = new ArrayList<>();
+        deleted = new ArrayList<>();
+        given(repository.replaceAll(anyMap()))
+                .willAnswer(invocation -> Mono.just((long) invocation.<Map<?, ?>>getArgument(0).size()));
+        given(repository.deleteByExternalIds(anyCollection()))
+                .willAnswer(invocation -> Mono.just((long) invocation.<Collection<?>>getArgument(0).size()));
+    }
+
+    @Test
+    public void writesOnlyWhatChanged() {
+        given(repository.findByExternalIds(anyCollection())).willReturn(Flux.just(
+                vendor("5c4e1f8e1c9d440000a1b2c1", "A-1", "Posca"),
+                vendor("5c4e1f8e1c9d440000a1b2c2", "A-2", "Tosh")));
+        given(repository.findExternalIds()).willReturn(Flux.just("A-1", "A-2", "A-3"));
+        given(repository.findByExternalIds(Collections.singletonList("A-3")))
+                .willReturn(Flux.just(vendor("5c4e1f8e1c9d440000a1b2c3", "A-3", "Collins")));
+
+        StepVerifier.create(sync(Flux.just(vendor(null, "A-1", "Posca"), vendor(null, "A-2", "Marley"), vendor(null, "A-4", "Cerati")), true))
+                .expectNext(SyncResult.builder().inserted(1).updated(1).unchanged(1).deleted(1).build())
+                .verifyComplete();
+
+        final ArgumentCaptor<Map<String, Vendor>> writesCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(repository).replaceAll(writesCaptor.capture());
+        final Map<String, Vendor> writes = writesCaptor.getValue();
+        assertEquals(2, writes.size());
+        assertEquals("Marley", writes.get("5c4e1f8e1c9d440000a1b2c2").getLastName());
+        assertNotNull(writes.values().stream().filter(vendor -> vendor.getExternalId().equals("A-4")).findFirst().get().getId());
+        verify(repository).deleteByExternalIds(Collections.singletonList("A-3"));
+        assertEquals(2, written.size());
+        assertEquals(1, deleted.size());
+    }
+
+    @Test
+    public void syncingTheSameSnapshotAgainWritesNothing() {
+        given(repository.findByExternalIds(anyCollection())).willReturn(Flux.just(vendor("5c4e1f8e1c9d440000a1b2c1", "A-1", "Posca")));
+        given(repository.findExternalIds()).willReturn(Flux.just("A-1"));
+
+        StepVerifier.create(sync(Flux.just(vendor(null, "A-1", "Posca")), true))
+                .expectNext(SyncResult.builder().unchanged(1).build())
+                .verifyComplete();
+
+        verify(repository, never()).deleteByExternalIds(anyCollection());
+        assertEquals(0, written.size());
+    }
+
+    @Test
+    public void keepsMissingDocumentsUnlessAskedToDelete() {
+        given(repository.findByExternalIds(anyCollection())).willReturn(Flux.empty());
+
+        StepVerifier.create(sync(Flux.just(vendor(null, "A-1", "Posca"), vendor(null, "A-1", "Pasca")), false))
+                .expectNext(SyncResult.builder().inserted(1).build())
+                .verifyComplete();
+
+        verify(repository, never()).findExternalIds();
+        assertEquals(Collections.singletonList("A-1"), written);
+    }
+
+    @Test
+    public void ignoresIdsSentWithNewDocuments() {
+        given(repository.findByExternalIds(anyCollection())).willReturn(Flux.empty());
+
+        StepVerifier.create(sync(Flux.just(vendor("5c4e1f8e1c9d440000a1b2c1", "A-1", "Posca")), false))
+                .expectNext(SyncResult.builder().inserted(1).build())
+                .verifyComplete();
+
+        final ArgumentCaptor<Map<String, Vendor>> writesCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(repository).replaceAll(writesCaptor.capture());
+        final Vendor inserted = writesCaptor.getValue().values().iterator().next();
+        assertNotNull(inserted.getId());
+        assertNotEquals("5c4e1f8e1c9d440000a1b2c1", inserted.getId());
+    }
+
+    @Test
+    public void rejectsDocumentsWithoutExternalId() {
+        StepVerifier.create(sync(Flux.just(vendor(null, null, "Posca")), true))
+                .verifyError(ServerWebInputException.class);
+
+        verify(repository, never()).replaceAll(any());
+    }
+
+    private Mono<SyncResult> sync(Flux<Vendor> snapshot, boolean deleteMissing) {
+        return snapshotSync.sync(snapshot, repository, deleteMissing,
+                vendor -> Mono.fromRunnable(() -> written.add(vendor.getExternalId())),
+                vendor -> Mono.fromRunnable(() -> deleted.add(vendor.getExternalId())));
+    }
+
+    private static Vendor vendor(String id, String externalId, String lastName) {
+        return Vendor.builder().id(id).externalId(externalId).firstName("Fabio").lastName(lastName).build();
+    }
+}
@@ -0,0 +1,129 @@
+package guru.springframework.spring5webfluxrest.bulk;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class WriteBehindBufferTest {
+
+    private final List<Map<String, String>> flushes = new ArrayList<>();
+
+    private WriteBehindProperties properties;
+
+    private VirtualTimeScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        properties = new WriteBehindProperties();
+        properties.setEnabled(true);
+        properties.setWindow(Duration.ofMillis(100));
+        scheduler = VirtualTimeScheduler.getOrSet();
+    }
+
+    @After
+    public void tearDown() {
+        VirtualTimeScheduler.reset();
+    }
+
+    @Test
+    public void keepsTheLastUpdateOfEachDocument() {
+        final WriteBehindBuffer<String> buffer = new WriteBehindBuffer<>(properties, this::write);
+
+        final Mono<Void> first = buffer.buffer("1", "first");
+        final Mono<Void> second = buffer.buffer("1", "second");
+        final Mono<Void> other = buffer.buffer("2", "other");
+        scheduler.advanceTimeBy(Duration.ofMillis(100));
+
+        assertEquals(1, flushes.size());
+        final Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("1", "second");
+        expected.put("2", "other");
+        assertEquals(expected, flushes.get(0));
+        StepVerifier.create(Mono.when(first, second, other)).verifyComplete();
+    }
+
+    @Test
+    public void refusesUpdatesUntilAFullBufferIsWritten() {
+        properties.setMaxPending(2);
+        final MonoProcessor<Long> flush = MonoProcessor.create();
+        final WriteBehindBuffer<String> buffer = new WriteBehindBuffer<>(properties, updates -> flush);
+
+        assertNotNull(buffer.buffer("1", "first"));
+        assertNotNull(buffer.buffer("2", "second"));
+        assertNull(buffer.buffer("3", "third"));
+
+        flush.onNext(2L);
+
+        assertNotNull(buffer.buffer("3", "third"));
+    }
+
+    @Test
+    public void tellsWhenTheUpdatesOfADocumentAreWritten() {
+        final WriteBehindBuffer<String> buffer = new WriteBehindBuffer<>(properties, this::write);
+
+        buffer.buffer("1", "first");
+        final MonoProcessor<Void> written = buffer.written("1").toProcessor();
+
+        assertFalse(written.isTerminated());
+        StepVerifier.create(buffer.written("2")).verifyComplete();
+        scheduler.advanceTimeBy(Duration.ofMillis(100));
+
+        assertTrue(written.isSuccess());
+        StepVerifier.create(buffer.written("1")).verifyComplete();
+    }
+
+    @Test
+    public void failsTheUpdatesOfAFailedFlush() {
+        final WriteBehindBuffer<String> buffer = new WriteBehindBuffer<>(properties,
+                updates -> flushes.isEmpty() ? Mono.error(new IllegalStateException("down")) : write(updates));
+
+        final Mono<Void> failed = buffer.buffer("1", "first");
+        scheduler.advanceTimeBy(Duration.ofMillis(100));
+        flushes.add(new LinkedHashMap<>());
+        final Mono<Void> written = buffer.buffer("1", "second");
+        scheduler.advanceTimeBy(Duration.ofMillis(100));
+
+        StepVerifier.create(failed).verifyErrorMessage("down");
+        StepVerifier.create(written).verifyComplete();
+    }
+
+    @Test
+    public void flushesWhatIsLeftOnClose() {
+        properties.setWindow(Duration.ofHours(1));
+        final WriteBehindBuffer<String> buffer = new WriteBehindBuffer<>(properties, this::write);
+
+        buffer.buffer("1", "first");
+        buffer.close();
+
+        assertEquals(1, flushes.size());
+    }
+
+    @Test
+    public void takesNothingWhenDisabled() {
+        properties.setEnabled(false);
+
+        assertNull(new WriteBehindBuffer<>(properties, this::write).buffer("1", "first"));
+        assertTrue(flushes.isEmpty());
+    }
+
+    private Mono<Long> write(Map<String, String> updates) {
+        flushes.add(updates);
+        return Mono.just((long) updates.size());
+    }
+}
@@ -0,0 +1,137 @@
+package guru.springframework.spring5webfluxrest.cache;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import guru.springframework.spring5webfluxrest.domain.Category;
+import guru.springframework.spring5webfluxrest.domain.Vendor;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class ChangeStreamCacheSynchronizerTest {
+
+    private static final ObjectId CATEGORY_ID = new ObjectId();
+
+    @Mock
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    private MappingMongoConverter converter;
+
+    private AtomicInteger categoryLoads;
+
+    private ReactiveReadThroughCache<Category> categoryCache;
+
+    private CollectionStamp categoryStamp;
+
+    private ChangeStreamCacheSynchronizer synchronizer;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+        categoryLoads = new AtomicInteger();
+        categoryCache = new ReactiveReadThroughCache<>(new CacheProperties().getCategories(),
+                id -> Mono.fromCallable(() -> Category.builder().id(id).description("Load " + categoryLoads.incrementAndGet()).build()));
+        final ReactiveReadThroughCache<Vendor> vendorCache = new ReactiveReadThroughCache<>(new CacheProperties().getVendors(), id -> Mono.empty());
+
+        given(reactiveMongoTemplate.getCollectionName(Category.class)).willReturn("category");
+        given(reactiveMongoTemplate.getCollectionName(Vendor.class)).willReturn("vendor");
+        given(reactiveMongoTemplate.changeStream(eq("vendor"), any(ChangeStreamOptions.class), eq(Vendor.class)))
+                .willReturn(Flux.never());
+
+        categoryStamp = new CollectionStamp(Duration.ofHours(1));
+
+        synchronizer = new ChangeStreamCacheSynchronizer(reactiveMongoTemplate, categoryCache, vendorCache,
+                categoryStamp, new CollectionStamp(Duration.ofHours(1)));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        synchronizer.stop();
+    }
+
+    @Test
+    public void updatesRefreshCachedDocuments() {
+        StepVerifier.create(categoryCache.get(CATEGORY_ID.toHexString()))
+                .expectNextMatches(category -> category.getDescription().equals("Load 1"))
+                .verifyComplete();
+        given(reactiveMongoTemplate.changeStream(eq("category"), any(ChangeStreamOptions.class), eq(Category.class)))
+                .willReturn(Flux.just(event(OperationType.UPDATE, "Nuts")).concatWith(Flux.never()));
+        final long stampBefore = categoryStamp.current();
+
+        synchronizer.start();
+
+        StepVerifier.create(categoryCache.get(CATEGORY_ID.toHexString()))
+                .expectNextMatches(category -> category.getDescription().equals("Nuts"))
+                .verifyComplete();
+        assertEquals(1, categoryLoads.get());
+        assertTrue(categoryStamp.current() > stampBefore);
+    }
+
+    @Test
+    public void deletesInvalidateCachedDocuments() {
+        StepVerifier.create(categoryCache.get(CATEGORY_ID.toHexString())).expectNextCount(1).verifyComplete();
+        given(reactiveMongoTemplate.changeStream(eq("category"), any(ChangeStreamOptions.class), eq(Category.class)))
+                .willReturn(Flux.just(event(OperationType.DELETE, null)).concatWith(Flux.never()));
+
+        synchronizer.start();
+
+        StepVerifier.create(categoryCache.get(CATEGORY_ID.toHexString()))
+                .expectNextMatches(category -> category.getDescription().equals("Load 2"))
+                .verifyComplete();
+    }
+
+    @Test
+    public void resumesFromLastTokenAfterError() {
+        given(reactiveMongoTemplate.changeStream(eq("category"), any(ChangeStreamOptions.class), eq(Category.class)))
+                .willReturn(Flux.just(event(OperationType.UPDATE, "Nuts")).concatWith(Flux.error(new IllegalStateException("connection reset"))))
+                .willReturn(Flux.never());
+
+        synchronizer.start();
+
+        verify(reactiveMongoTemplate, timeout(Duration.ofSeconds(5).toMillis())).changeStream(eq("category"),
+                argThat(options -> options.getResumeToken().map(token -> token.equals(resumeToken())).orElse(false)),
+                eq(Category.class));
+        assertEquals(resumeToken(), synchronizer.resumeToken(Category.class));
+    }
+
+    private ChangeStreamEvent<Category> event(OperationType operationType, String description) {
+        final Document fullDocument = description == null ? null : new Document("_id", CATEGORY_ID).append("description", description);
+        final ChangeStreamDocument<Document> raw = new ChangeStreamDocument<>(resumeToken(), new MongoNamespace("test.category"),
+                fullDocument, new BsonDocument("_id", new BsonObjectId(CATEGORY_ID)), operationType, null);
+        return new ChangeStreamEvent<>(raw, Category.class, converter);
+    }
+
+    private static BsonDocument resumeToken() {
+        return new BsonDocument("_data", new BsonString("82" + CATEGORY_ID.toHexString()));
+    }
+}
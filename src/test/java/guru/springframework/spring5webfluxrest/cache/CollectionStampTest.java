@@ -0,0 +1,63 @@
+package guru.springframework.spring5webfluxrest.cache;
+
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CollectionStampTest {
+
+    private final CollectionStamp stamp = new CollectionStamp(Duration.ofHours(1));
+
+    @Test
+    public void writesAdvanceTheStamp() {
+        final long before = stamp.current();
+
+        StepVerifier.create(stamp.write(modified -> Mono.just(modified.toEpochMilli())))
+                .expectNextMatches(modified -> modified > before)
+                .verifyComplete();
+
+        assertTrue(stamp.current() > before);
+    }
+
+    @Test
+    public void staysBelowWritesInFlight() {
+        final MonoProcessor<Instant> write = MonoProcessor.create();
+        final AtomicReference<Instant> modified = new AtomicReference<>();
+        stamp.write(instant -> {
+            modified.set(instant);
+            return write;
+        }).subscribe();
+
+        stamp.touch();
+
+        assertEquals(modified.get().toEpochMilli() - 1, stamp.current());
+        write.onNext(modified.get());
+        assertTrue(stamp.current() > modified.get().toEpochMilli());
+    }
+
+    @Test
+    public void stampsEveryDocumentOfAWriteAlike() {
+        StepVerifier.create(stamp.writeMany(modified -> Flux.just(modified, modified)).distinct())
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    public void movesOnAfterMaxAge() {
+        final CollectionStamp shortLived = new CollectionStamp(Duration.ofMillis(10));
+        final long before = shortLived.current();
+
+        StepVerifier.create(Mono.delay(Duration.ofMillis(30))).expectNextCount(1).verifyComplete();
+
+        assertTrue(shortLived.current() > before);
+    }
+}
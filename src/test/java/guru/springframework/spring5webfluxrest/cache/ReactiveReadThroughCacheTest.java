@@ -0,0 +1,76 @@
+package guru.springframework.spring5webfluxrest.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReactiveReadThroughCacheTest {
+
+    private AtomicInteger loads;
+
+    private ReactiveReadThroughCache<String> cache;
+
+    @Before
+    public void setUp() throws Exception {
+        loads = new AtomicInteger();
+        cache = new ReactiveReadThroughCache<>(new CacheProperties.Spec(100, Duration.ofMinutes(1)),
+                id -> id.startsWith("missing")
+                        ? Mono.<String>empty().doOnSubscribe(subscription -> loads.incrementAndGet())
+                        : Mono.just("value of " + id).delayElement(Duration.ofMillis(50)).doOnSubscribe(subscription -> loads.incrementAndGet()));
+    }
+
+    @Test
+    public void loadsOnceAndServesHits() {
+        StepVerifier.create(cache.get("1")).expectNext("value of 1").verifyComplete();
+        StepVerifier.create(cache.get("1")).expectNext("value of 1").verifyComplete();
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void coalescesConcurrentMisses() {
+        StepVerifier.create(Flux.range(0, 20).flatMap(i -> cache.get("1")))
+                .expectNextCount(20)
+                .verifyComplete();
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void reloadsAfterInvalidation() {
+        StepVerifier.create(cache.get("1")).expectNextCount(1).verifyComplete();
+
+        cache.invalidate("1");
+
+        StepVerifier.create(cache.get("1")).expectNextCount(1).verifyComplete();
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void doesNotCacheMissingDocuments() {
+        StepVerifier.create(cache.get("missing")).verifyComplete();
+        StepVerifier.create(cache.get("missing")).verifyComplete();
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void exposesHitAndMissCounts() {
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.metrics("test").bindTo(registry);
+
+        StepVerifier.create(cache.get("1")).expectNextCount(1).verifyComplete();
+        StepVerifier.create(cache.get("1")).expectNextCount(1).verifyComplete();
+
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "test").tag("result", "hit").functionCounter().count(), 0.0);
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "test").tag("result", "miss").functionCounter().count(), 0.0);
+    }
+}
@@ -0,0 +1,41 @@
+package guru.springframework.spring5webfluxrest.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import guru.springframework.spring5webfluxrest.cache.CacheProperties;
+import guru.springframework.spring5webfluxrest.domain.Vendor;
+import org.junit.Test;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+public class CodecConfigTest {
+
+    @Test
+    public void writesFluxAsNewlineDelimitedJson() {
+        final WebTestClient webTestClient = WebTestClient.bindToController(new StreamingController())
+                .httpMessageCodecs(new CodecConfig().ndjsonCodecCustomizer(new ObjectMapper(), new CacheProperties())::customize)
+                .build();
+
+        webTestClient.get()
+                .uri("/vendors")
+                .accept(CodecConfig.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(CodecConfig.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .isEqualTo("{\"id\":\"1\",\"externalId\":null,\"firstName\":\"Mike\",\"lastName\":\"Wazowski\",\"categoryId\":null,\"version\":null,\"lastModified\":null}\n"
+                        + "{\"id\":\"2\",\"externalId\":null,\"firstName\":\"Sullivan\",\"lastName\":\"Mayfield\",\"categoryId\":null,\"version\":null,\"lastModified\":null}\n");
+    }
+
+    @RestController
+    static class StreamingController {
+
+        @GetMapping("/vendors")
+        Flux<Vendor> vendors() {
+            return Flux.just(
+                    Vendor.builder().id("1").firstName("Mike").lastName("Wazowski").build(),
+                    Vendor.builder().id("2").firstName("Sullivan").lastName("Mayfield").build());
+        }
+    }
+}
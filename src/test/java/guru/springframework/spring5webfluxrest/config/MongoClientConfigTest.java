@@ -0,0 +1,41 @@
+package guru.springframework.spring5webfluxrest.config;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.ReadPreference;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class MongoClientConfigTest {
+
+    @Test
+    public void appliesPoolAndTimeouts() {
+        final MongoClientProperties properties = new MongoClientProperties();
+        properties.getPool().setMaxSize(40);
+        properties.getPool().setMaxWaitTime(Duration.ofMillis(500));
+        properties.setReadTimeout(Duration.ofSeconds(10));
+
+        final MongoClientSettings.Builder builder = MongoClientSettings.builder();
+        new MongoClientConfig().mongoClientSettingsCustomizer(properties).customize(builder);
+        final MongoClientSettings settings = builder.build();
+
+        assertEquals(40, settings.getConnectionPoolSettings().getMaxSize());
+        assertEquals(500, settings.getConnectionPoolSettings().getMaxWaitQueueSize());
+        assertEquals(500, settings.getConnectionPoolSettings().getMaxWaitTime(TimeUnit.MILLISECONDS));
+        assertEquals(10_000, settings.getSocketSettings().getReadTimeout(TimeUnit.MILLISECONDS));
+        assertEquals(5_000, settings.getClusterSettings().getServerSelectionTimeout(TimeUnit.MILLISECONDS));
+        assertEquals(ReadPreference.primary(), settings.getReadPreference());
+    }
+
+    @Test
+    public void readsFromSecondariesNoStalerThanMaxStaleness() {
+        final MongoClientProperties properties = new MongoClientProperties();
+        properties.setReadPreference("secondaryPreferred");
+        properties.setMaxStaleness(Duration.ofSeconds(120));
+
+        assertEquals(ReadPreference.secondaryPreferred(120, TimeUnit.SECONDS), properties.toReadPreference());
+    }
+}
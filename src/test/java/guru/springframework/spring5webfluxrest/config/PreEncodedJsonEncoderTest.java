@@ -0,0 +1,73 @@
+package guru.springframework.spring5webfluxrest.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import guru.springframework.spring5webfluxrest.domain.Category;
+import guru.springframework.spring5webfluxrest.domain.Vendor;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class PreEncodedJsonEncoderTest {
+
+    private static final ResolvableType VENDOR_TYPE = ResolvableType.forClass(Vendor.class);
+
+    private PreEncodedJsonEncoder encoder;
+
+    @Before
+    public void setUp() throws Exception {
+        encoder = new PreEncodedJsonEncoder(new ObjectMapper(), Collections.singletonList(Vendor.class), 100,
+                MediaType.APPLICATION_JSON);
+    }
+
+    @Test
+    public void encodesTheSameDocumentOnce() {
+        final Vendor vendor = Vendor.builder().id("1").firstName("Mike").lastName("Wazowski").build();
+
+        final String first = encode(Mono.just(vendor), VENDOR_TYPE);
+        final String second = encode(Mono.just(vendor), VENDOR_TYPE);
+
+        assertEquals("{\"id\":\"1\",\"externalId\":null,\"firstName\":\"Mike\",\"lastName\":\"Wazowski\",\"categoryId\":null,\"version\":null,\"lastModified\":null}", first);
+        assertEquals(first, second);
+        assertEquals(1, encoder.preEncodedCount());
+    }
+
+    @Test
+    public void encodesListsThroughJackson() {
+        final String json = encode(Flux.just(Vendor.builder().id("1").build(), Vendor.builder().id("2").build()), VENDOR_TYPE);
+
+        assertEquals('[', json.charAt(0));
+        assertEquals(0, encoder.preEncodedCount());
+    }
+
+    @Test
+    public void leavesOtherTypesToJackson() {
+        encode(Mono.just(Category.builder().id("1").build()), ResolvableType.forClass(Category.class));
+
+        assertEquals(0, encoder.preEncodedCount());
+    }
+
+    private String encode(Publisher<?> input, ResolvableType type) {
+        return encoder.encode(input, new DefaultDataBufferFactory(), type, MediaType.APPLICATION_JSON, Collections.emptyMap())
+                .map(this::asString)
+                .reduce(String::concat)
+                .block();
+    }
+
+    private String asString(DataBuffer buffer) {
+        final String value = StandardCharsets.UTF_8.decode(buffer.asByteBuffer()).toString();
+        DataBufferUtils.release(buffer);
+        return value;
+    }
+}
@@ -0,0 +1,83 @@
+package guru.springframework.spring5webfluxrest.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ServerConnectionsTest {
+
+    private NettyServerProperties properties;
+
+    private ServerConnections serverConnections;
+
+    private SimpleMeterRegistry registry;
+
+    @Before
+    public void setUp() throws Exception {
+        properties = new NettyServerProperties();
+        serverConnections = new ServerConnections(properties);
+        registry = new SimpleMeterRegistry();
+        serverConnections.bindTo(registry);
+    }
+
+    @Test
+    public void closesConnectionsOverTheLimit() {
+        properties.setMaxConnections(1);
+        final EmbeddedChannel first = new EmbeddedChannel();
+        final EmbeddedChannel second = new EmbeddedChannel();
+
+        serverConnections.accept(first);
+        serverConnections.accept(second);
+
+        assertTrue(first.isOpen());
+        assertFalse(second.isOpen());
+        assertEquals(1, serverConnections.active());
+        assertEquals(1.0, connections("accepted"), 0.0);
+        assertEquals(1.0, connections("rejected"), 0.0);
+
+        first.close();
+        serverConnections.accept(new EmbeddedChannel());
+
+        assertEquals(1, serverConnections.active());
+        assertEquals(1.0, registry.get(ServerConnections.ACTIVE_METRIC_NAME).gauge().value(), 0.0);
+    }
+
+    @Test
+    public void closesIdleConnections() throws Exception {
+        properties.setIdleTimeout(Duration.ofMillis(10));
+        final EmbeddedChannel channel = new EmbeddedChannel();
+        serverConnections.accept(channel);
+        assertNotNull(channel.pipeline().get(ServerConnections.IDLE_HANDLER));
+
+        Thread.sleep(50);
+        channel.runPendingTasks();
+
+        assertFalse(channel.isOpen());
+        assertEquals(0, serverConnections.active());
+        assertEquals(1.0, connections("idle_closed"), 0.0);
+    }
+
+    @Test
+    public void keepsConnectionsWithoutIdleTimeout() {
+        properties.setIdleTimeout(Duration.ZERO);
+        final EmbeddedChannel channel = new EmbeddedChannel();
+
+        serverConnections.accept(channel);
+
+        assertTrue(channel.isOpen());
+        assertNull(channel.pipeline().get(ServerConnections.IDLE_HANDLER));
+    }
+
+    private double connections(String outcome) {
+        return registry.get(ServerConnections.METRIC_NAME).tag("outcome", outcome).functionCounter().count();
+    }
+}
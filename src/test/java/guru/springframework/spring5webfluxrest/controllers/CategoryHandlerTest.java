@@ -0,0 +1,395 @@
+package guru.springframework.spring5webfluxrest.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import guru.springframework.spring5webfluxrest.bulk.BulkIngestProperties;
+import guru.springframework.spring5webfluxrest.bulk.BulkIngester;
+import guru.springframework.spring5webfluxrest.bulk.SnapshotSync;
+import guru.springframework.spring5webfluxrest.bulk.WriteBehindBuffer;
+import guru.springframework.spring5webfluxrest.bulk.WriteBehindProperties;
+import guru.springframework.spring5webfluxrest.cache.CacheProperties;
+import guru.springframework.spring5webfluxrest.cache.CollectionStamp;
+import guru.springframework.spring5webfluxrest.cache.ReactiveReadThroughCache;
+import guru.springframework.spring5webfluxrest.domain.Category;
+import guru.springframework.spring5webfluxrest.export.ExportProperties;
+import guru.springframework.spring5webfluxrest.export.NdjsonExporter;
+import guru.springframework.spring5webfluxrest.repositories.CategoryRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.reactivestreams.Publisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.verify;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+
+public class CategoryHandlerTest {
+
+    private WebTestClient webTestClient;
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    private CategoryHandler categoryHandler;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        categoryHandler = new CategoryHandler(categoryRepository,
+                new ReactiveReadThroughCache<>(new CacheProperties().getCategories(), categoryRepository::findById),
+                new CollectionStamp(Duration.ofMinutes(1)),
+                new BulkIngester(new BulkIngestProperties()),
+                new NdjsonExporter(new ExportProperties(), new ObjectMapper()),
+                new WriteBehindBuffer<>(new WriteBehindProperties(), categories -> Mono.empty()),
+                new SnapshotSync(new BulkIngestProperties()));
+        webTestClient = WebTestClient.bindToRouterFunction(new ApiRoutes().categoryRoutes(categoryHandler)).build();
+    }
+
+    @Test
+    public void getListOk() {
+        given(categoryRepository.findAll())
+                .willReturn(Flux.just(
+                        Category.builder()
+                                .id("2323439mere431")
+                                .description("Category 1")
+                                .build(),
+                        Category.builder()
+                                .id("23hjksh324wew")
+                                .description("Category 2")
+                                .build())
+                        );
+
+        webTestClient.get()
+                .uri("/api/v1/categories")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Category.class)
+                .hasSize(2);
+
+    }
+
+    @Test
+    public void getPageWithNextCursor() {
+        given(categoryRepository.findPage(eq("5c4e1f8e1c9d440000a1b2c1"), eq(1)))
+                .willReturn(Flux.just(Category.builder().id("5c4e1f8e1c9d440000a1b2c2").description("Category 2").build()));
+
+        webTestClient.get()
+                .uri("/api/v1/categories?limit=1&cursor={cursor}", PageCursor.encode("5c4e1f8e1c9d440000a1b2c1"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(PageCursor.NEXT_CURSOR_HEADER, PageCursor.encode("5c4e1f8e1c9d440000a1b2c2"))
+                .expectBodyList(Category.class)
+                .hasSize(1);
+    }
+
+    @Test
+    public void getPageWithInvalidCursor() {
+        webTestClient.get()
+                .uri("/api/v1/categories?limit=1&cursor=%%%")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void searchByDescription() {
+        given(categoryRepository.searchByDescription("fr", 5))
+                .willReturn(Flux.just(Category.builder().id("someid").description("Fruit").build()));
+
+        webTestClient.get()
+                .uri("/api/v1/categories/search?prefix=fr&limit=5")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].description").isEqualTo("Fruit");
+    }
+
+    @Test
+    public void getById() {
+        given(categoryRepository.findById(anyString()))
+                .willReturn(Mono.just(
+                        Category.builder()
+                                .id("2323439mere431")
+                                .description("Category 1")
+                                .build()));
+        webTestClient.get()
+                .uri("/api/v1/categories/2323439mere431")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Category.class);
+    }
+
+    @Test
+    public void getByIdServedFromCache() {
+        given(categoryRepository.findById("2323439mere431"))
+                .willReturn(Mono.just(Category.builder().id("2323439mere431").description("Category 1").build()));
+
+        webTestClient.get().uri("/api/v1/categories/2323439mere431").exchange().expectStatus().isOk();
+        webTestClient.get().uri("/api/v1/categories/2323439mere431").exchange().expectStatus().isOk();
+
+        verify(categoryRepository, times(1)).findById("2323439mere431");
+    }
+
+    @Test
+    public void updateInvalidatesCache() {
+        given(categoryRepository.findById("2323439mere431"))
+                .willReturn(Mono.just(Category.builder().id("2323439mere431").description("Category 1").build()));
+        given(categoryRepository.replace(anyString(), any(Category.class), isNull()))
+                .willReturn(Mono.just(Category.builder().id("2323439mere431").description("Category 1").build()));
+
+        webTestClient.get().uri("/api/v1/categories/2323439mere431").exchange().expectStatus().isOk();
+        webTestClient.put()
+                .uri("/api/v1/categories/2323439mere431")
+                .body(Mono.just(Category.builder().description("Beans").build()), Category.class)
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.get().uri("/api/v1/categories/2323439mere431").exchange().expectStatus().isOk();
+
+        verify(categoryRepository, times(2)).findById("2323439mere431");
+    }
+
+    @Test
+    public void createCategory() {
+        given(categoryRepository.saveAll(any(Publisher.class)))
+                .willReturn(Flux.just(Category.builder().id("2343sfs3").description("Beans").build()));
+
+        Mono<Category> categoryToSaveMono = Mono.just(Category.builder().description("Beans").build());
+
+        webTestClient.post()
+                .uri("/api/v1/categories")
+                .body(categoryToSaveMono, Category.class)
+                .exchange()
+                .expectStatus().isCreated();
+
+    }
+
+    @Test
+    public void bulkCreate() {
+        given(categoryRepository.insertUnordered(anyList()))
+                .willAnswer(invocation -> Mono.just((long) invocation.<List<?>>getArgument(0).size()));
+
+        webTestClient.post()
+                .uri("/api/v1/categories/bulk")
+                .body(Flux.just(Category.builder().description("Beans").build(), Category.builder().description("Lentils").build()), Category.class)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$[0].size").isEqualTo(2)
+                .jsonPath("$[0].inserted").isEqualTo(2)
+                .jsonPath("$[0].failed").isEqualTo(0);
+
+        verify(categoryRepository, never()).saveAll(any(Publisher.class));
+    }
+
+    @Test
+    public void updateCategory() {
+        given(categoryRepository.replace(anyString(), any(Category.class), isNull()))
+                .willReturn(Mono.just(Category.builder().build()));
+
+        Mono<Category> categoryToUpdateMono = Mono.just(Category.builder().description("Beans").build());
+
+        webTestClient.put()
+                .uri("/api/v1/categories/2343sfs3")
+                .body(categoryToUpdateMono, Category.class)
+                .exchange()
+                .expectStatus().isOk();
+
+    }
+
+    @Test
+    public void patchCategory() {
+        given(categoryRepository.patch(anyString(), any(Category.class), isNull()))
+                .willReturn(Mono.just(Category.builder().id("2343sfs3").description("Beans").build()));
+
+        Mono<Category> categoryToUpdateMono = Mono.just(Category.builder().description("Beans").build());
+
+        webTestClient.patch()
+                .uri("/api/v1/categories/2343sfs3")
+                .body(categoryToUpdateMono, Category.class)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.description").isEqualTo("Beans");
+
+        verify(categoryRepository).patch(eq("2343sfs3"), any(Category.class), isNull());
+        verify(categoryRepository, never()).findById(anyString());
+        verify(categoryRepository, never()).save(any(Category.class));
+
+    }
+
+    @Test
+    public void getByIdReturnsETag() {
+        given(categoryRepository.findById("2343sfs3"))
+                .willReturn(Mono.just(Category.builder().id("2343sfs3").version(3L).build()));
+
+        webTestClient.get()
+                .uri("/api/v1/categories/2343sfs3")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"");
+    }
+
+    @Test
+    public void getByIdNotModified() {
+        given(categoryRepository.findVersion("2343sfs3")).willReturn(Mono.just(3L));
+
+        webTestClient.get()
+                .uri("/api/v1/categories/2343sfs3")
+                .ifNoneMatch("\"3\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"")
+                .expectBody().isEmpty();
+
+        verify(categoryRepository, never()).findById(anyString());
+    }
+
+    @Test
+    public void getByIdModifiedSinceETag() {
+        given(categoryRepository.findVersion("2343sfs3")).willReturn(Mono.just(4L));
+        given(categoryRepository.findById("2343sfs3"))
+                .willReturn(Mono.just(Category.builder().id("2343sfs3").version(4L).build()));
+
+        webTestClient.get()
+                .uri("/api/v1/categories/2343sfs3")
+                .ifNoneMatch("\"3\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"4\"");
+    }
+
+    @Test
+    public void updateWithStaleIfMatch() {
+        given(categoryRepository.replace(eq("2343sfs3"), any(Category.class), eq(3L))).willReturn(Mono.empty());
+
+        webTestClient.put()
+                .uri("/api/v1/categories/2343sfs3")
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .body(Mono.just(Category.builder().build()), Category.class)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @Test
+    public void patchWithIfMatch() {
+        given(categoryRepository.patch(eq("2343sfs3"), any(Category.class), eq(3L)))
+                .willReturn(Mono.just(Category.builder().id("2343sfs3").version(4L).build()));
+
+        webTestClient.patch()
+                .uri("/api/v1/categories/2343sfs3")
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .body(Mono.just(Category.builder().build()), Category.class)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"4\"");
+    }
+
+    @Test
+    public void patchWithForeignIfMatch() {
+        webTestClient.patch()
+                .uri("/api/v1/categories/2343sfs3")
+                .header(HttpHeaders.IF_MATCH, "\"abc\"")
+                .body(Mono.just(Category.builder().build()), Category.class)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        verify(categoryRepository, never()).patch(anyString(), any(Category.class), any());
+    }
+
+    @Test
+    public void listNotModified() {
+        given(categoryRepository.findAll()).willReturn(Flux.just(Category.builder().id("2343sfs3").build()));
+
+        final String etag = webTestClient.get()
+                .uri("/api/v1/categories")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(ConditionalRequests.MODIFICATION_STAMP_HEADER)
+                .returnResult(Category.class)
+                .getResponseHeaders()
+                .getETag();
+
+        webTestClient.get()
+                .uri("/api/v1/categories")
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isNotModified();
+
+        verify(categoryRepository, times(1)).findAll();
+    }
+
+    @Test
+    public void listModifiedAfterUpdate() {
+        given(categoryRepository.findAll()).willReturn(Flux.just(Category.builder().id("2343sfs3").build()));
+        given(categoryRepository.replace(anyString(), any(Category.class), isNull()))
+                .willReturn(Mono.just(Category.builder().id("2343sfs3").version(1L).build()));
+
+        final String etag = webTestClient.get().uri("/api/v1/categories").exchange()
+                .returnResult(Category.class).getResponseHeaders().getETag();
+        webTestClient.put()
+                .uri("/api/v1/categories/2343sfs3")
+                .body(Mono.just(Category.builder().build()), Category.class)
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.get()
+                .uri("/api/v1/categories")
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isOk();
+
+        verify(categoryRepository).replace(eq("2343sfs3"), argThat(category -> category.getLastModified() != null), isNull());
+    }
+
+    @Test
+    public void listChangesSinceStamp() {
+        given(categoryRepository.findModifiedSince(Instant.ofEpochMilli(1541030400000L)))
+                .willReturn(Flux.just(Category.builder().id("2343sfs3").build()));
+
+        webTestClient.get()
+                .uri("/api/v1/categories?since=1541030400000")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Category.class)
+                .hasSize(1);
+
+        verify(categoryRepository, never()).findAll();
+    }
+
+    @Test
+    public void listWithInvalidSince() {
+        webTestClient.get()
+                .uri("/api/v1/categories?since=yesterday")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void exportCategories() {
+        given(categoryRepository.export(isNull(), eq(Collections.singletonList("description")), eq(new ExportProperties().getBatchSize())))
+                .willReturn(Flux.just(Collections.singletonMap("description", "Fruits")));
+
+        webTestClient.get()
+                .uri("/api/v1/categories/export?fields=description")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .isEqualTo("{\"description\":\"Fruits\"}\n");
+    }
+}
@@ -0,0 +1,627 @@
+package guru.springframework.spring5webfluxrest.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import guru.springframework.spring5webfluxrest.bulk.BulkIngestProperties;
+import guru.springframework.spring5webfluxrest.bulk.BulkIngester;
+import guru.springframework.spring5webfluxrest.bulk.SnapshotSync;
+import guru.springframework.spring5webfluxrest.bulk.WriteBehindBuffer;
+import guru.springframework.spring5webfluxrest.bulk.WriteBehindProperties;
+import guru.springframework.spring5webfluxrest.cache.CacheProperties;
+import guru.springframework.spring5webfluxrest.cache.CollectionStamp;
+import guru.springframework.spring5webfluxrest.cache.ReactiveReadThroughCache;
+import guru.springframework.spring5webfluxrest.config.CodecConfig;
+import guru.springframework.spring5webfluxrest.domain.CategorySummary;
+import guru.springframework.spring5webfluxrest.domain.Vendor;
+import guru.springframework.spring5webfluxrest.export.ExportProperties;
+import guru.springframework.spring5webfluxrest.export.NdjsonExporter;
+import guru.springframework.spring5webfluxrest.repositories.VendorRepository;
+import guru.springframework.spring5webfluxrest.summary.VendorSummaries;
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.reactivestreams.Publisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class VendorHandlerTest {
+
+    @Mock
+    private VendorRepository vendorRepository;
+
+    @Mock
+    private VendorSummaries vendorSummaries;
+
+    private VendorHandler vendorHandler;
+
+    private WebTestClient webTestClient;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        given(vendorSummaries.written(any(Vendor.class))).willAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        given(vendorSummaries.recording(any())).willAnswer(invocation -> invocation.getArgument(0));
+        vendorHandler = new VendorHandler(vendorRepository,
+                new ReactiveReadThroughCache<>(new CacheProperties().getVendors(), vendorRepository::findById),
+                new CollectionStamp(Duration.ofMinutes(1)),
+                new BulkIngester(new BulkIngestProperties()),
+                new NdjsonExporter(new ExportProperties(), new ObjectMapper()),
+                new WriteBehindBuffer<>(new WriteBehindProperties(), vendors -> Mono.empty()),
+                vendorSummaries, new SnapshotSync(new BulkIngestProperties()));
+        webTestClient = WebTestClient.bindToRouterFunction(new ApiRoutes().vendorRoutes(vendorHandler)).build();
+    }
+
+    @Test
+    public void getAll() {
+        given(vendorRepository.findAll())
+                .willReturn(Flux.just(
+                        Vendor.builder()
+                                .id("2323439mere431")
+                                .firstName("Mike")
+                                .lastName("Wazowski")
+                                .build(),
+                        Vendor.builder()
+                                .id("23hjksh324wew")
+                                .firstName("Sullivan")
+                                .lastName("Mayfield")
+                                .build())
+                );
+
+        webTestClient.get()
+                .uri("/api/v1/vendors")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Vendor.class)
+                .hasSize(2);
+    }
+
+    @Test
+    public void getPageWithNextCursor() {
+        given(vendorRepository.findPage(isNull(), eq(2)))
+                .willReturn(Flux.just(
+                        Vendor.builder().id("5c4e1f8e1c9d440000a1b2c1").firstName("Mike").lastName("Wazowski").build(),
+                        Vendor.builder().id("5c4e1f8e1c9d440000a1b2c2").firstName("Sullivan").lastName("Mayfield").build()));
+
+        webTestClient.get()
+                .uri("/api/v1/vendors?limit=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(PageCursor.NEXT_CURSOR_HEADER, PageCursor.encode("5c4e1f8e1c9d440000a1b2c2"))
+                .expectBodyList(Vendor.class)
+                .hasSize(2);
+
+        verify(vendorRepository, never()).findAll();
+    }
+
+    @Test
+    public void getLastPage() {
+        given(vendorRepository.findPage(eq("5c4e1f8e1c9d440000a1b2c2"), eq(2)))
+                .willReturn(Flux.just(
+                        Vendor.builder().id("5c4e1f8e1c9d440000a1b2c3").firstName("Randall").lastName("Boggs").build()));
+
+        webTestClient.get()
+                .uri("/api/v1/vendors?limit=2&cursor={cursor}", PageCursor.encode("5c4e1f8e1c9d440000a1b2c2"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(PageCursor.NEXT_CURSOR_HEADER)
+                .expectBodyList(Vendor.class)
+                .hasSize(1);
+    }
+
+    @Test
+    public void getPageWithInvalidLimit() {
+        webTestClient.get()
+                .uri("/api/v1/vendors?limit=0")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void getPageWithNonNumericLimit() {
+        webTestClient.get()
+                .uri("/api/v1/vendors?limit=ten")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void updateWithoutBody() {
+        webTestClient.put()
+                .uri("/api/v1/vendors/2343sfs3")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verify(vendorRepository, never()).save(any(Vendor.class));
+    }
+
+    @Test
+    public void getAllStreamed() {
+        given(vendorRepository.findAll())
+                .willReturn(Flux.just(
+                        Vendor.builder().id("2323439mere431").firstName("Mike").lastName("Wazowski").build(),
+                        Vendor.builder().id("23hjksh324wew").firstName("Sullivan").lastName("Mayfield").build()));
+
+        webTestClient.get()
+                .uri("/api/v1/vendors")
+                .accept(MediaType.APPLICATION_STREAM_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_STREAM_JSON)
+                .returnResult(Vendor.class)
+                .getResponseBody()
+                .as(StepVerifier::create)
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @Test
+    public void getByCategory() {
+        given(vendorRepository.findByCategory(new ObjectId("5c4e1f8e1c9d440000a1b2c1")))
+                .willReturn(Flux.just(Vendor.builder().id("23hjksh324wew").firstName("Charly").lastName("Garcia")
+                        .categoryId(new ObjectId("5c4e1f8e1c9d440000a1b2c1")).build()));
+
+        webTestClient.get()
+                .uri("/api/v1/vendors?categoryId=5c4e1f8e1c9d440000a1b2c1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].categoryId").isEqualTo("5c4e1f8e1c9d440000a1b2c1");
+
+        verify(vendorRepository, never()).findAll();
+    }
+
+    @Test
+    public void getByInvalidCategory() {
+        webTestClient.get()
+                .uri("/api/v1/vendors?categoryId=fruit")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void summarizeByCategory() {
+        given(vendorRepository.summarizeByCategory(Collections.singletonList(new ObjectId("5c4e1f8e1c9d440000a1b2c1")), 0))
+                .willReturn(Flux.just(CategorySummary.builder()
+                        .categoryId("5c4e1f8e1c9d440000a1b2c1")
+                        .description("Fruit")
+                        .vendorCount(3)
+                        .build()));
+
+        webTestClient.get()
+                .uri("/api/v1/vendors/by-category?categoryId=5c4e1f8e1c9d440000a1b2c1&vendors=0")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].categoryId").isEqualTo("5c4e1f8e1c9d440000a1b2c1")
+                .jsonPath("$[0].description").isEqualTo("Fruit")
+                .jsonPath("$[0].vendorCount").isEqualTo(3);
+    }
+
+    @Test
+    public void summarizeEveryCategoryCapsListedVendors() {
+        given(vendorRepository.summarizeByCategory(Collections.emptyList(), CategoryParams.MAX_LISTED)).willReturn(Flux.empty());
+
+        webTestClient.get()
+                .uri("/api/v1/vendors/by-category?vendors=100000")
+                .exchange()
+                .expectStatus().isOk();
+
+        verify(vendorRepository).summarizeByCategory(Collections.emptyList(), CategoryParams.MAX_LISTED);
+    }
+
+    @Test
+    public void countByInitial() {
+        final Map<String, Long> counts = new LinkedHashMap<>();
+        counts.put("G", 2L);
+        counts.put("T", 1L);
+        given(vendorSummaries.counts(VendorSummaries.BY_INITIAL)).willReturn(Mono.just(counts));
+
+        webTestClient.get()
+                .uri("/api/v1/vendors/summary/initials")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.G").isEqualTo(2)
+                .jsonPath("$.T").isEqualTo(1);
+
+        verify(vendorRepository, never()).findAll();
+    }
+
+    @Test
+    public void rebuildSummaries() {
+        given(vendorSummaries.rebuild()).willReturn(Mono.just(7L));
+
+        webTestClient.post()
+                .uri("/api/v1/vendors/summary/rebuild")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.vendors").isEqualTo(7);
+    }
+
+    @Test
+    public void searchByName() {
+        given(vendorRepository.searchByName("ga", SearchParams.DEFAULT_LIMIT))
+                .willReturn(Flux.just(Vendor.builder().id("23hjksh324wew").firstName("Charly").lastName("Garcia").build()));
+
+        webTestClient.get()
+                .uri("/api/v1/vendors/search?prefix=ga")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].lastName").isEqualTo("Garcia");
+
+        verify(vendorRepository, never()).findById(anyString());
+    }
+
+    @Test
+    public void searchCapsLimit() {
+        given(vendorRepository.searchByName("ga", SearchParams.MAX_LIMIT)).willReturn(Flux.empty());
+
+        webTestClient.get()
+                .uri("/api/v1/vendors/search?prefix=ga&limit=100000")
+                .exchange()
+                .expectStatus().isOk();
+
+        verify(vendorRepository).searchByName("ga", SearchParams.MAX_LIMIT);
+    }
+
+    @Test
+    public void searchWithoutPrefix() {
+        webTestClient.get()
+                .uri("/api/v1/vendors/search")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void getById() {
+        given(vendorRepository.findById(anyString()))
+                .willReturn(Mono.just(
+                        Vendor.builder()
+                                .id("2323439mere431")
+                                .firstName("Mike")
+                                .lastName("Wazowski")
+                                .build()));
+
+        webTestClient.get()
+                .uri("/api/v1/vendors/2323439mere431")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Vendor.class);
+    }
+
+    @Test
+    public void getByIdInSmile() {
+        given(vendorRepository.findById(anyString()))
+                .willReturn(Mono.just(Vendor.builder().id("2323439mere431").firstName("Mike").lastName("Wazowski").version(2L).build()));
+
+        webTestClient.get()
+                .uri("/api/v1/vendors/2323439mere431")
+                .accept(CodecConfig.APPLICATION_SMILE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(CodecConfig.APPLICATION_SMILE)
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"2\"")
+                .expectBody(Vendor.class)
+                .isEqualTo(Vendor.builder().id("2323439mere431").firstName("Mike").lastName("Wazowski").version(2L).build());
+    }
+
+    @Test
+    public void getByIdServedFromCache() {
+        given(vendorRepository.findById("2323439mere431"))
+                .willReturn(Mono.just(Vendor.builder().id("2323439mere431").firstName("Mike").lastName("Wazowski").build()));
+
+        webTestClient.get().uri("/api/v1/vendors/2323439mere431").exchange().expectStatus().isOk();
+        webTestClient.get().uri("/api/v1/vendors/2323439mere431").exchange().expectStatus().isOk();
+
+        verify(vendorRepository, times(1)).findById("2323439mere431");
+    }
+
+    @Test
+    public void updateInvalidatesCache() {
+        given(vendorRepository.findById("2323439mere431"))
+                .willReturn(Mono.just(Vendor.builder().id("2323439mere431").firstName("Mike").lastName("Wazowski").build()));
+        given(vendorRepository.replace(anyString(), any(Vendor.class), isNull()))
+                .willReturn(Mono.just(Vendor.builder().id("2323439mere431").firstName("Mike").lastName("Wazowski").build()));
+
+        webTestClient.get().uri("/api/v1/vendors/2323439mere431").exchange().expectStatus().isOk();
+        webTestClient.put()
+                .uri("/api/v1/vendors/2323439mere431")
+                .body(Mono.just(Vendor.builder().firstName("Fabio").lastName("Posca").build()), Vendor.class)
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.get().uri("/api/v1/vendors/2323439mere431").exchange().expectStatus().isOk();
+
+        verify(vendorRepository, times(2)).findById("2323439mere431");
+    }
+
+    @Test
+    public void createVendor() {
+        given(vendorRepository.saveAll(any(Publisher.class)))
+                .willReturn(Flux.just(Vendor.builder().id("2343sfs3").firstName("Some").lastName("Name").build()));
+
+        final Vendor vendorToCreate = Vendor.builder()
+                .firstName("Some")
+                .lastName("Name")
+                .build();
+
+        webTestClient.post()
+                .uri("/api/v1/vendors")
+                .body(Flux.just(vendorToCreate), Vendor.class)
+                .exchange()
+                .expectStatus().isCreated();
+
+    }
+
+    @Test
+    public void bulkCreate() {
+        given(vendorRepository.insertUnordered(anyList()))
+                .willAnswer(invocation -> Mono.just((long) invocation.<List<?>>getArgument(0).size()));
+
+        webTestClient.post()
+                .uri("/api/v1/vendors/bulk")
+                .body(Flux.just(Vendor.builder().firstName("Some").lastName("Name").build(), Vendor.builder().firstName("Other").lastName("Name").build()), Vendor.class)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$[0].size").isEqualTo(2)
+                .jsonPath("$[0].inserted").isEqualTo(2)
+                .jsonPath("$[0].failed").isEqualTo(0);
+
+        verify(vendorRepository, never()).saveAll(any(Publisher.class));
+    }
+
+    @Test
+    public void updateVendor() {
+        given(vendorRepository.replace(anyString(), any(Vendor.class), isNull()))
+                .willReturn(Mono.just(Vendor.builder().build()));
+
+        Mono<Vendor> vendorToUpdateMono = Mono.just(Vendor.builder().firstName("Fabio").lastName("Posca").build());
+
+        webTestClient.put()
+                .uri("/api/v1/vendors/2343sfs3")
+                .body(vendorToUpdateMono, Vendor.class)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    public void patchVendorOk() {
+        given(vendorRepository.patch(anyString(), any(Vendor.class), isNull()))
+                .willReturn(Mono.just(Vendor.builder()
+                        .id("2343sfs3")
+                        .firstName("Fabio")
+                        .lastName("Posca")
+                        .build()));
+
+        Mono<Vendor> vendorToUpdateMono = Mono.just(Vendor.builder().firstName("Fabio").build());
+
+        webTestClient.patch()
+                .uri("/api/v1/vendors/2343sfs3")
+                .body(vendorToUpdateMono, Vendor.class)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.firstName").isEqualTo("Fabio")
+                .jsonPath("$.lastName").isEqualTo("Posca");
+
+        verify(vendorRepository).patch(eq("2343sfs3"), any(Vendor.class), isNull());
+        verify(vendorRepository, never()).findById(anyString());
+        verify(vendorRepository, never()).save(any(Vendor.class));
+
+    }
+
+    @Test
+    public void getByIdReturnsETag() {
+        given(vendorRepository.findById("2343sfs3"))
+                .willReturn(Mono.just(Vendor.builder().id("2343sfs3").version(3L).build()));
+
+        webTestClient.get()
+                .uri("/api/v1/vendors/2343sfs3")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"");
+    }
+
+    @Test
+    public void getByIdNotModified() {
+        given(vendorRepository.findVersion("2343sfs3")).willReturn(Mono.just(3L));
+
+        webTestClient.get()
+                .uri("/api/v1/vendors/2343sfs3")
+                .ifNoneMatch("\"3\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"")
+                .expectBody().isEmpty();
+
+        verify(vendorRepository, never()).findById(anyString());
+    }
+
+    @Test
+    public void getByIdModifiedSinceETag() {
+        given(vendorRepository.findVersion("2343sfs3")).willReturn(Mono.just(4L));
+        given(vendorRepository.findById("2343sfs3"))
+                .willReturn(Mono.just(Vendor.builder().id("2343sfs3").version(4L).build()));
+
+        webTestClient.get()
+                .uri("/api/v1/vendors/2343sfs3")
+                .ifNoneMatch("\"3\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"4\"");
+    }
+
+    @Test
+    public void updateWithStaleIfMatch() {
+        given(vendorRepository.replace(eq("2343sfs3"), any(Vendor.class), eq(3L))).willReturn(Mono.empty());
+
+        webTestClient.put()
+                .uri("/api/v1/vendors/2343sfs3")
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .body(Mono.just(Vendor.builder().build()), Vendor.class)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @Test
+    public void patchWithIfMatch() {
+        given(vendorRepository.patch(eq("2343sfs3"), any(Vendor.class), eq(3L)))
+                .willReturn(Mono.just(Vendor.builder().id("2343sfs3").version(4L).build()));
+
+        webTestClient.patch()
+                .uri("/api/v1/vendors/2343sfs3")
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .body(Mono.just(Vendor.builder().build()), Vendor.class)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"4\"");
+    }
+
+    @Test
+    public void patchWithForeignIfMatch() {
+        webTestClient.patch()
+                .uri("/api/v1/vendors/2343sfs3")
+                .header(HttpHeaders.IF_MATCH, "\"abc\"")
+                .body(Mono.just(Vendor.builder().build()), Vendor.class)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        verify(vendorRepository, never()).patch(anyString(), any(Vendor.class), any());
+    }
+
+    @Test
+    public void listNotModified() {
+        given(vendorRepository.findAll()).willReturn(Flux.just(Vendor.builder().id("2343sfs3").build()));
+
+        final String etag = webTestClient.get()
+                .uri("/api/v1/vendors")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(ConditionalRequests.MODIFICATION_STAMP_HEADER)
+                .returnResult(Vendor.class)
+                .getResponseHeaders()
+                .getETag();
+
+        webTestClient.get()
+                .uri("/api/v1/vendors")
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isNotModified();
+
+        verify(vendorRepository, times(1)).findAll();
+    }
+
+    @Test
+    public void listModifiedAfterUpdate() {
+        given(vendorRepository.findAll()).willReturn(Flux.just(Vendor.builder().id("2343sfs3").build()));
+        given(vendorRepository.replace(anyString(), any(Vendor.class), isNull()))
+                .willReturn(Mono.just(Vendor.builder().id("2343sfs3").version(1L).build()));
+
+        final String etag = webTestClient.get().uri("/api/v1/vendors").exchange()
+                .returnResult(Vendor.class).getResponseHeaders().getETag();
+        webTestClient.put()
+                .uri("/api/v1/vendors/2343sfs3")
+                .body(Mono.just(Vendor.builder().build()), Vendor.class)
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.get()
+                .uri("/api/v1/vendors")
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isOk();
+
+        verify(vendorRepository).replace(eq("2343sfs3"), argThat(vendor -> vendor.getLastModified() != null), isNull());
+    }
+
+    @Test
+    public void listChangesSinceStamp() {
+        given(vendorRepository.findModifiedSince(Instant.ofEpochMilli(1541030400000L)))
+                .willReturn(Flux.just(Vendor.builder().id("2343sfs3").build()));
+
+        webTestClient.get()
+                .uri("/api/v1/vendors?since=1541030400000")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Vendor.class)
+                .hasSize(1);
+
+        verify(vendorRepository, never()).findAll();
+    }
+
+    @Test
+    public void listWithInvalidSince() {
+        webTestClient.get()
+                .uri("/api/v1/vendors?since=yesterday")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void exportStreamsNewlineDelimitedJson() {
+        final Map<String, Object> first = new LinkedHashMap<>();
+        first.put("id", "5c4e1f8e1c9d440000a1b2c1");
+        first.put("lastName", "Wazowski");
+        final Map<String, Object> second = new LinkedHashMap<>();
+        second.put("id", "5c4e1f8e1c9d440000a1b2c2");
+        second.put("lastName", "Mayfield");
+        given(vendorRepository.export(eq("5c4e1f8e1c9d440000a1b2c0"), eq(Collections.singletonList("lastName")), eq(500)))
+                .willReturn(Flux.just(first, second));
+
+        webTestClient.get()
+                .uri("/api/v1/vendors/export?after=5c4e1f8e1c9d440000a1b2c0&fields=id,lastName&batchSize=500")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(CodecConfig.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .isEqualTo("{\"id\":\"5c4e1f8e1c9d440000a1b2c1\",\"lastName\":\"Wazowski\"}\n"
+                        + "{\"id\":\"5c4e1f8e1c9d440000a1b2c2\",\"lastName\":\"Mayfield\"}\n");
+
+        verify(vendorRepository, never()).findAll();
+    }
+
+    @Test
+    public void exportDefaultsToEveryField() {
+        given(vendorRepository.export(isNull(), eq(NdjsonExporter.VENDOR_FIELDS), eq(new ExportProperties().getBatchSize())))
+                .willReturn(Flux.empty());
+
+        webTestClient.get()
+                .uri("/api/v1/vendors/export")
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    public void exportUnknownField() {
+        webTestClient.get()
+                .uri("/api/v1/vendors/export?fields=password")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+}
@@ -0,0 +1,85 @@
+package guru.springframework.spring5webfluxrest.metrics;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ConnectionId;
+import com.mongodb.connection.ConnectionPoolSettings;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import com.mongodb.event.ConnectionAddedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolClosedEvent;
+import com.mongodb.event.ConnectionPoolOpenedEvent;
+import com.mongodb.event.ConnectionPoolWaitQueueEnteredEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class MongoMetricsListenersTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ServerId serverId;
+
+    @Before
+    public void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        serverId = new ServerId(new ClusterId(), new ServerAddress("localhost", 27017));
+    }
+
+    @Test
+    public void timesCommandsByNameAndStatus() {
+        final MongoCommandMetricsListener listener = new MongoCommandMetricsListener();
+        listener.bindTo(meterRegistry);
+        final ConnectionDescription connection = new ConnectionDescription(serverId);
+
+        listener.commandSucceeded(new CommandSucceededEvent(1, connection, "find", new BsonDocument(), TimeUnit.MILLISECONDS.toNanos(3)));
+        listener.commandFailed(new CommandFailedEvent(2, connection, "insert", TimeUnit.MILLISECONDS.toNanos(5), new IllegalStateException()));
+
+        assertEquals(3, meterRegistry.get(MongoCommandMetricsListener.METRIC_NAME)
+                .tag("command", "find")
+                .tag("status", "success")
+                .tag("server", "localhost:27017")
+                .timer()
+                .totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(1, meterRegistry.get(MongoCommandMetricsListener.METRIC_NAME)
+                .tag("command", "insert")
+                .tag("status", "failed")
+                .timer()
+                .count());
+    }
+
+    @Test
+    public void tracksConnectionPoolState() {
+        final MongoConnectionPoolMetricsListener listener = new MongoConnectionPoolMetricsListener();
+        final ConnectionId first = new ConnectionId(serverId);
+        final ConnectionId second = new ConnectionId(serverId);
+
+        listener.connectionPoolOpened(new ConnectionPoolOpenedEvent(serverId, ConnectionPoolSettings.builder().maxSize(20).build()));
+        listener.bindTo(meterRegistry);
+        listener.connectionAdded(new ConnectionAddedEvent(first));
+        listener.connectionAdded(new ConnectionAddedEvent(second));
+        listener.connectionCheckedOut(new ConnectionCheckedOutEvent(first));
+        listener.connectionCheckedOut(new ConnectionCheckedOutEvent(second));
+        listener.connectionCheckedIn(new ConnectionCheckedInEvent(second));
+        listener.waitQueueEntered(new ConnectionPoolWaitQueueEnteredEvent(serverId));
+
+        assertEquals(2, meterRegistry.get(MongoConnectionPoolMetricsListener.SIZE).gauge().value(), 0);
+        assertEquals(1, meterRegistry.get(MongoConnectionPoolMetricsListener.CHECKED_OUT).gauge().value(), 0);
+        assertEquals(1, meterRegistry.get(MongoConnectionPoolMetricsListener.WAIT_QUEUE_SIZE).gauge().value(), 0);
+        assertEquals(20, meterRegistry.get(MongoConnectionPoolMetricsListener.MAX_SIZE).gauge().value(), 0);
+
+        listener.connectionPoolClosed(new ConnectionPoolClosedEvent(serverId));
+
+        assertNull(meterRegistry.find(MongoConnectionPoolMetricsListener.SIZE).gauge());
+    }
+}
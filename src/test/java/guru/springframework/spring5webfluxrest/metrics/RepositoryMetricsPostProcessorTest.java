@@ -0,0 +1,71 @@
+package guru.springframework.spring5webfluxrest.metrics;
+
+import guru.springframework.spring5webfluxrest.domain.Category;
+import guru.springframework.spring5webfluxrest.repositories.CategoryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class RepositoryMetricsPostProcessorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private CategoryRepository categoryRepository;
+
+    @Before
+    public void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        final DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("meterRegistry", meterRegistry);
+
+        final CategoryRepository target = mock(CategoryRepository.class);
+        given(target.findById(anyString())).willReturn(Mono.just(Category.builder().description("Fruits").build()));
+        given(target.findAll()).willReturn(Flux.error(new IllegalStateException("down")));
+
+        final ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.addInterface(CategoryRepository.class);
+        categoryRepository = (CategoryRepository) new RepositoryMetricsPostProcessor(beanFactory.getBeanProvider(MeterRegistry.class))
+                .postProcessAfterInitialization(proxyFactory.getProxy(), "categoryRepository");
+    }
+
+    @Test
+    public void timesCallsOnSubscription() {
+        final Mono<Category> category = categoryRepository.findById("1");
+
+        assertNull(meterRegistry.find(RepositoryMetricsPostProcessor.METRIC_NAME).timer());
+
+        StepVerifier.create(category).expectNextCount(1).verifyComplete();
+        StepVerifier.create(category).expectNextCount(1).verifyComplete();
+
+        final Timer timer = meterRegistry.get(RepositoryMetricsPostProcessor.METRIC_NAME)
+                .tag("repository", "categoryRepository")
+                .tag("method", "findById")
+                .tag("outcome", "success")
+                .timer();
+        assertEquals(2, timer.count());
+    }
+
+    @Test
+    public void tagsErrors() {
+        StepVerifier.create(categoryRepository.findAll()).verifyError(IllegalStateException.class);
+
+        assertEquals(1, meterRegistry.get(RepositoryMetricsPostProcessor.METRIC_NAME)
+                .tag("method", "findAll")
+                .tag("outcome", "error")
+                .timer()
+                .count());
+    }
+}
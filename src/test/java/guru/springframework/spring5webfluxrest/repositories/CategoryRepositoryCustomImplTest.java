@@ -0,0 +1,65 @@
+package guru.springframework.spring5webfluxrest.repositories;
+
+import guru.springframework.spring5webfluxrest.config.MongoClientProperties;
+import guru.springframework.spring5webfluxrest.domain.Category;
+import org.bson.Document;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class CategoryRepositoryCustomImplTest {
+
+    @Mock
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    private CategoryRepositoryCustomImpl categoryRepositoryCustom;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        categoryRepositoryCustom = new CategoryRepositoryCustomImpl(reactiveMongoTemplate, new MongoClientProperties());
+    }
+
+    @Test
+    public void patchWithChanges() {
+        given(reactiveMongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Category.class)))
+                .willReturn(Mono.just(Category.builder().id("2343sfs3").description("Beans").build()));
+
+        StepVerifier.create(categoryRepositoryCustom.patch("2343sfs3", Category.builder().description("Beans").build(), null))
+                .expectNextMatches(category -> category.getDescription().equals("Beans"))
+                .verifyComplete();
+
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        verify(reactiveMongoTemplate).findAndModify(any(Query.class), updateCaptor.capture(), any(FindAndModifyOptions.class), eq(Category.class));
+        verify(reactiveMongoTemplate, never()).findById(any(), eq(Category.class));
+        assertEquals("Beans", updateCaptor.getValue().getUpdateObject().get("$set", Document.class).get("description"));
+    }
+
+    @Test
+    public void patchWithNoChanges() {
+        given(reactiveMongoTemplate.findOne(any(Query.class), eq(Category.class)))
+                .willReturn(Mono.just(Category.builder().id("2343sfs3").description("Beans").build()));
+
+        StepVerifier.create(categoryRepositoryCustom.patch("2343sfs3", Category.builder().build(), null))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(reactiveMongoTemplate).findOne(any(Query.class), eq(Category.class));
+        verify(reactiveMongoTemplate, never()).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Category.class));
+    }
+}
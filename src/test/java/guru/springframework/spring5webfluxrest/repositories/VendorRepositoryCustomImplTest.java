@@ -0,0 +1,345 @@
+package guru.springframework.spring5webfluxrest.repositories;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import guru.springframework.spring5webfluxrest.config.MongoClientProperties;
+import guru.springframework.spring5webfluxrest.domain.Category;
+import guru.springframework.spring5webfluxrest.domain.CategorySummary;
+import guru.springframework.spring5webfluxrest.domain.Vendor;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class VendorRepositoryCustomImplTest {
+
+    @Mock
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    private VendorRepositoryCustomImpl vendorRepositoryCustom;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        vendorRepositoryCustom = new VendorRepositoryCustomImpl(reactiveMongoTemplate, new MongoClientProperties());
+    }
+
+    @Test
+    public void patchFirstNameOnly() {
+        given(reactiveMongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Vendor.class)))
+                .willReturn(Mono.just(Vendor.builder().id("2343sfs3").firstName("Fabio").lastName("Posca").build()));
+
+        StepVerifier.create(vendorRepositoryCustom.patch("2343sfs3", Vendor.builder().firstName("Fabio").build(), null))
+                .expectNextMatches(vendor -> vendor.getFirstName().equals("Fabio") && vendor.getLastName().equals("Posca"))
+                .verifyComplete();
+
+        final Document set = captureSet();
+        assertEquals("Fabio", set.get("firstName"));
+        assertFalse(set.containsKey("lastName"));
+    }
+
+    @Test
+    public void patchFirstAndLastName() {
+        given(reactiveMongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Vendor.class)))
+                .willReturn(Mono.just(Vendor.builder().id("2343sfs3").firstName("Fabio").lastName("Posca").build()));
+
+        StepVerifier.create(vendorRepositoryCustom.patch("2343sfs3", Vendor.builder().firstName("Fabio").lastName("Posca").build(), null))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        final Document set = captureSet();
+        assertEquals("Fabio", set.get("firstName"));
+        assertEquals("Posca", set.get("lastName"));
+        verify(reactiveMongoTemplate, never()).findById(any(), eq(Vendor.class));
+    }
+
+    @Test
+    public void patchWithNoChanges() {
+        given(reactiveMongoTemplate.findOne(any(Query.class), eq(Vendor.class)))
+                .willReturn(Mono.just(Vendor.builder().id("2343sfs3").firstName("Fabio").lastName("Posca").build()));
+
+        StepVerifier.create(vendorRepositoryCustom.patch("2343sfs3", Vendor.builder().build(), null))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(reactiveMongoTemplate).findOne(any(Query.class), eq(Vendor.class));
+        verify(reactiveMongoTemplate, never()).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Vendor.class));
+    }
+
+    @Test
+    public void patchIfVersionMatches() {
+        given(reactiveMongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Vendor.class)))
+                .willReturn(Mono.empty());
+
+        StepVerifier.create(vendorRepositoryCustom.patch("2343sfs3", Vendor.builder().firstName("Fabio").build(), 3L))
+                .verifyComplete();
+
+        final ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        final ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        verify(reactiveMongoTemplate).findAndModify(queryCaptor.capture(), updateCaptor.capture(), any(FindAndModifyOptions.class), eq(Vendor.class));
+        assertEquals(3L, queryCaptor.getValue().getQueryObject().get("version"));
+        assertEquals(new Document("version", 1), updateCaptor.getValue().getUpdateObject().get("$inc"));
+    }
+
+    @Test
+    public void replaceUnsetsMissingFieldsAndUpserts() {
+        given(reactiveMongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Vendor.class)))
+                .willReturn(Mono.just(Vendor.builder().id("2343sfs3").firstName("Fabio").version(1L).build()));
+
+        StepVerifier.create(vendorRepositoryCustom.replace("2343sfs3", Vendor.builder().firstName("Fabio").build(), null))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        final ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        final ArgumentCaptor<FindAndModifyOptions> optionsCaptor = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+        verify(reactiveMongoTemplate).findAndModify(any(Query.class), updateCaptor.capture(), optionsCaptor.capture(), eq(Vendor.class));
+        assertEquals("Fabio", updateCaptor.getValue().getUpdateObject().get("$set", Document.class).get("firstName"));
+        assertTrue(updateCaptor.getValue().getUpdateObject().get("$unset", Document.class).containsKey("lastName"));
+        assertTrue(optionsCaptor.getValue().isUpsert());
+    }
+
+    @Test
+    public void searchByNamePutsLastNameMatchesFirst() {
+        given(reactiveMongoTemplate.find(any(Query.class), eq(Vendor.class)))
+                .willAnswer(invocation -> invocation.<Query>getArgument(0).getQueryObject().containsKey("lastName")
+                        ? Flux.just(Vendor.builder().id("1").firstName("Charly").lastName("Garcia").build())
+                        : Flux.just(Vendor.builder().id("2").firstName("Gabriel").lastName("Posca").build(),
+                                Vendor.builder().id("1").firstName("Charly").lastName("Garcia").build()));
+
+        StepVerifier.create(vendorRepositoryCustom.searchByName("ga", 10))
+                .expectNextMatches(vendor -> vendor.getId().equals("1"))
+                .expectNextMatches(vendor -> vendor.getId().equals("2"))
+                .verifyComplete();
+
+        final ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(reactiveMongoTemplate, times(2)).find(queryCaptor.capture(), eq(Vendor.class));
+        final Query byLastName = queryCaptor.getAllValues().get(0);
+        assertEquals(new Document("$gte", "ga").append("$lt", "ga\uffff"), byLastName.getQueryObject().get("lastName"));
+        assertEquals(PrefixSearch.CASE_INSENSITIVE.toDocument(), byLastName.getCollation().get().toDocument());
+        assertEquals(10, byLastName.getLimit());
+    }
+
+    @Test
+    public void findByCategoryReadsInNameOrder() {
+        final ObjectId categoryId = new ObjectId();
+        given(reactiveMongoTemplate.find(any(Query.class), eq(Vendor.class))).willReturn(Flux.empty());
+
+        StepVerifier.create(vendorRepositoryCustom.findByCategory(categoryId)).verifyComplete();
+
+        final ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(reactiveMongoTemplate).find(queryCaptor.capture(), eq(Vendor.class));
+        assertEquals(categoryId, queryCaptor.getValue().getQueryObject().get("categoryId"));
+        assertEquals(new Document("lastName", 1).append("firstName", 1), queryCaptor.getValue().getSortObject());
+    }
+
+    @Test
+    public void summarizeByCategoryCountsAndListsInOneAggregation() {
+        final ObjectId categoryId = new ObjectId();
+        given(reactiveMongoTemplate.getCollectionName(Category.class)).willReturn("category");
+        given(reactiveMongoTemplate.getCollectionName(Vendor.class)).willReturn("vendor");
+        given(reactiveMongoTemplate.aggregate(any(TypedAggregation.class), eq(CategorySummary.class)))
+                .willReturn(Flux.just(CategorySummary.builder().categoryId(categoryId.toHexString()).vendorCount(2).build()));
+
+        StepVerifier.create(vendorRepositoryCustom.summarizeByCategory(Collections.singletonList(categoryId), 5))
+                .expectNextMatches(summary -> summary.getVendorCount() == 2)
+                .verifyComplete();
+
+        final ArgumentCaptor<TypedAggregation> aggregationCaptor = ArgumentCaptor.forClass(TypedAggregation.class);
+        verify(reactiveMongoTemplate).aggregate(aggregationCaptor.capture(), eq(CategorySummary.class));
+        verify(reactiveMongoTemplate, never()).find(any(Query.class), eq(Vendor.class));
+        final List<Document> pipeline = aggregationCaptor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertEquals(Arrays.asList("$match", "$group", "$sort", "$lookup", "$lookup", "$project"),
+                pipeline.stream().map(stage -> stage.keySet().iterator().next()).collect(Collectors.toList()));
+        assertEquals(new Document("$in", Collections.singletonList(categoryId)),
+                pipeline.get(0).get("$match", Document.class).get("categoryId"));
+        assertEquals(new Document("_id", "$categoryId").append("vendorCount", new Document("$sum", 1)),
+                pipeline.get(1).get("$group"));
+        assertEquals("category", pipeline.get(3).get("$lookup", Document.class).get("from"));
+        final Document vendors = pipeline.get(4).get("$lookup", Document.class);
+        assertEquals("vendor", vendors.get("from"));
+        assertEquals(new Document("cid", "$_id"), vendors.get("let"));
+        assertEquals(Arrays.asList(
+                new Document("$match", new Document("$expr", new Document("$eq", Arrays.asList("$categoryId", "$$cid")))),
+                new Document("$sort", new Document("lastName", 1).append("firstName", 1)),
+                new Document("$limit", 5),
+                new Document("$project", new Document("firstName", 1).append("lastName", 1))), vendors.get("pipeline"));
+        assertEquals(1, pipeline.get(5).get("$project", Document.class).get("vendors"));
+        assertTrue(aggregationCaptor.getValue().getOptions().isAllowDiskUse());
+    }
+
+    @Test
+    public void summarizeCountsOnlyWithoutListedVendors() {
+        given(reactiveMongoTemplate.getCollectionName(Category.class)).willReturn("category");
+        given(reactiveMongoTemplate.aggregate(any(TypedAggregation.class), eq(CategorySummary.class))).willReturn(Flux.empty());
+
+        StepVerifier.create(vendorRepositoryCustom.summarizeByCategory(Collections.emptyList(), 0)).verifyComplete();
+
+        final ArgumentCaptor<TypedAggregation> aggregationCaptor = ArgumentCaptor.forClass(TypedAggregation.class);
+        verify(reactiveMongoTemplate).aggregate(aggregationCaptor.capture(), eq(CategorySummary.class));
+        final List<Document> pipeline = aggregationCaptor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertEquals(Arrays.asList("$match", "$group", "$sort", "$lookup", "$project"),
+                pipeline.stream().map(stage -> stage.keySet().iterator().next()).collect(Collectors.toList()));
+        assertEquals(new Document("$type", 7), pipeline.get(0).get("$match", Document.class).get("categoryId"));
+        assertFalse(pipeline.get(4).get("$project", Document.class).containsKey("vendors"));
+    }
+
+    @Test
+    public void findExternalIdsReadsTheIndexedFieldAlone() {
+        given(reactiveMongoTemplate.getCollectionName(Vendor.class)).willReturn("vendor");
+        given(reactiveMongoTemplate.find(any(Query.class), eq(Document.class), eq("vendor")))
+                .willReturn(Flux.just(new Document("externalId", "A-1")));
+
+        StepVerifier.create(vendorRepositoryCustom.findExternalIds())
+                .expectNext("A-1")
+                .verifyComplete();
+
+        final ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(reactiveMongoTemplate).find(queryCaptor.capture(), eq(Document.class), eq("vendor"));
+        assertEquals(new Document("externalId", 1).append("_id", 0), queryCaptor.getValue().getFieldsObject());
+        assertEquals(new Document("externalId", 1), queryCaptor.getValue().getSortObject());
+    }
+
+    @Test
+    public void exportReadsRawDocumentsAfterTheGivenId() {
+        final ObjectId id = new ObjectId();
+        given(reactiveMongoTemplate.getCollectionName(Vendor.class)).willReturn("vendor");
+        given(reactiveMongoTemplate.find(any(Query.class), eq(Document.class), eq("vendor")))
+                .willReturn(Flux.just(new Document("_id", id).append("lastName", "Posca").append("lastModified", new Date(0))));
+
+        StepVerifier.create(vendorRepositoryCustom.export("5c4e1f8e1c9d440000a1b2c1", Collections.singletonList("lastName"), 500))
+                .expectNextMatches(exported -> exported.get("id").equals(id.toHexString())
+                        && exported.get("lastName").equals("Posca")
+                        && exported.get("lastModified").equals(Instant.EPOCH))
+                .verifyComplete();
+
+        final ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(reactiveMongoTemplate).find(queryCaptor.capture(), eq(Document.class), eq("vendor"));
+        final Query query = queryCaptor.getValue();
+        assertEquals(new Document("$gt", new ObjectId("5c4e1f8e1c9d440000a1b2c1")), query.getQueryObject().get("_id"));
+        assertEquals(new Document("_id", 1).append("lastName", 1), query.getFieldsObject());
+        assertEquals(new Document("_id", 1), query.getSortObject());
+        assertEquals(Integer.valueOf(500), query.getMeta().getCursorBatchSize());
+    }
+
+    @Test
+    public void findAllStaysOnTheTemplateForThePrimary() {
+        given(reactiveMongoTemplate.findAll(Vendor.class)).willReturn(Flux.just(Vendor.builder().id("2343sfs3").build()));
+
+        StepVerifier.create(vendorRepositoryCustom.findAll())
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(reactiveMongoTemplate, never()).getCollection(any());
+    }
+
+    @Test
+    public void insertUnorderedCountsPartialFailures() {
+        final MongoCollection<Document> collection = mock(MongoCollection.class);
+        given(reactiveMongoTemplate.getConverter())
+                .willReturn(new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext()));
+        given(reactiveMongoTemplate.getCollectionName(Vendor.class)).willReturn("vendor");
+        given(reactiveMongoTemplate.getCollection("vendor")).willReturn(collection);
+        given(collection.insertMany(anyList(), any(InsertManyOptions.class)))
+                .willReturn(Mono.error(new MongoBulkWriteException(
+                        BulkWriteResult.acknowledged(1, 0, 0, 0, Collections.emptyList()),
+                        Collections.singletonList(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 1)),
+                        null,
+                        new ServerAddress())));
+
+        StepVerifier.create(vendorRepositoryCustom.insertUnordered(Arrays.asList(
+                Vendor.builder().firstName("Fabio").lastName("Posca").build(),
+                Vendor.builder().id("2343sfs3").firstName("Favio").lastName("Posca").build())))
+                .expectNext(1L)
+                .verifyComplete();
+
+        final ArgumentCaptor<InsertManyOptions> optionsCaptor = ArgumentCaptor.forClass(InsertManyOptions.class);
+        verify(collection).insertMany(anyList(), optionsCaptor.capture());
+        assertFalse(optionsCaptor.getValue().isOrdered());
+    }
+
+    @Test
+    public void replaceAllUpsertsEveryVendorInOneBulkWrite() {
+        final MongoCollection<Document> collection = mock(MongoCollection.class);
+        final ObjectId id = new ObjectId();
+        final MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+        converter.afterPropertiesSet();
+        given(reactiveMongoTemplate.getConverter()).willReturn(converter);
+        given(reactiveMongoTemplate.getCollectionName(Vendor.class)).willReturn("vendor");
+        given(reactiveMongoTemplate.getCollection("vendor")).willReturn(collection);
+        given(collection.bulkWrite(anyList(), any(BulkWriteOptions.class)))
+                .willReturn(Mono.just(BulkWriteResult.acknowledged(0, 1, 0, 1, Collections.singletonList(new BulkWriteUpsert(1, new BsonString("2343sfs3"))))));
+        final Map<String, Vendor> vendors = new LinkedHashMap<>();
+        vendors.put(id.toHexString(), Vendor.builder().firstName("Fabio").lastName("Posca").lastModified(Instant.EPOCH).build());
+        vendors.put("2343sfs3", Vendor.builder().lastName("Posca").build());
+
+        StepVerifier.create(vendorRepositoryCustom.replaceAll(vendors))
+                .expectNext(2L)
+                .verifyComplete();
+
+        final ArgumentCaptor<List<UpdateOneModel<Document>>> writesCaptor = ArgumentCaptor.forClass(List.class);
+        final ArgumentCaptor<BulkWriteOptions> optionsCaptor = ArgumentCaptor.forClass(BulkWriteOptions.class);
+        verify(collection).bulkWrite(writesCaptor.capture(), optionsCaptor.capture());
+        assertFalse(optionsCaptor.getValue().isOrdered());
+        final UpdateOneModel<Document> first = writesCaptor.getValue().get(0);
+        assertTrue(first.getOptions().isUpsert());
+        assertEquals(new BsonObjectId(id), first.getFilter()
+                .toBsonDocument(Document.class, MongoClientSettings.getDefaultCodecRegistry()).get("_id"));
+        final Document update = (Document) first.getUpdate();
+        assertEquals(new Date(0), update.get("$set", Document.class).get("lastModified"));
+        assertEquals(1, update.get("$inc", Document.class).get(VersionedDocuments.VERSION));
+        assertTrue(((Document) writesCaptor.getValue().get(1).getUpdate()).get("$unset", Document.class).containsKey("firstName"));
+    }
+
+    private Document captureSet() {
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        verify(reactiveMongoTemplate).findAndModify(any(Query.class), updateCaptor.capture(), any(FindAndModifyOptions.class), eq(Vendor.class));
+        return updateCaptor.getValue().getUpdateObject().get("$set", Document.class);
+    }
+}
@@ -0,0 +1,48 @@
+package guru.springframework.spring5webfluxrest.startup;
+
+import org.junit.Test;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class LazyInitializationBeanFactoryPostProcessorTest {
+
+    private static final AtomicInteger created = new AtomicInteger();
+
+    @Test
+    public void createsSingletonsOnFirstUse() {
+        created.set(0);
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.addBeanFactoryPostProcessor(new LazyInitializationBeanFactoryPostProcessor());
+            context.register(Beans.class);
+            context.refresh();
+
+            assertEquals(1, created.get());
+
+            context.getBean("service");
+            assertEquals(2, created.get());
+        }
+    }
+
+    @Configuration
+    static class Beans {
+
+        @Bean
+        Object service() {
+            created.incrementAndGet();
+            return new Object();
+        }
+
+        @Bean
+        SmartInitializingSingleton initializer() {
+            created.incrementAndGet();
+            return () -> {
+            };
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package guru.springframework.spring5webfluxrest.startup;
+
+import guru.springframework.spring5webfluxrest.startup.StartupTimeline.Milestone;
+import guru.springframework.spring5webfluxrest.startup.StartupTimeline.Phase;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class StartupTimelineTest {
+
+    private StartupTimeline timeline;
+
+    @Before
+    public void setUp() throws Exception {
+        timeline = new StartupTimeline(1000);
+    }
+
+    @Test
+    public void measuresPhasesBetweenMilestones() {
+        timeline.reached(Milestone.APPLICATION_STARTING, 1400);
+        timeline.reached(Milestone.CONTEXT_PREPARED, 1600);
+        timeline.reached(Milestone.CONTEXT_REFRESHED, 2600);
+        timeline.reached(Milestone.WEB_SERVER_STARTED, 2650);
+
+        assertEquals(Optional.of(Duration.ofMillis(400)), timeline.duration(Phase.JVM));
+        assertEquals(Optional.of(Duration.ofMillis(1000)), timeline.duration(Phase.BEAN_INITIALIZATION));
+        assertEquals(Optional.of(Duration.ofMillis(50)), timeline.duration(Phase.NETTY_BIND));
+        assertFalse(timeline.duration(Phase.TIME_TO_READY).isPresent());
+        assertEquals("jvm=400ms, boot=200ms, bean-initialization=1000ms, netty-bind=50ms", timeline.report());
+    }
+
+    @Test
+    public void keepsTheFirstTimeAMilestoneIsReached() {
+        timeline.reached(Milestone.FIRST_REQUEST_SERVED, 3000);
+        timeline.reached(Milestone.FIRST_REQUEST_SERVED, 5000);
+
+        assertEquals(Optional.of(Duration.ofMillis(2000)), timeline.duration(Phase.TIME_TO_FIRST_REQUEST));
+    }
+}
@@ -0,0 +1,163 @@
+package guru.springframework.spring5webfluxrest.summary;
+
+import com.mongodb.client.result.UpdateResult;
+import guru.springframework.spring5webfluxrest.domain.Vendor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class VendorSummariesTest {
+
+    private static final ObjectId CATEGORY_ID = new ObjectId();
+
+    @Mock
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    private SummaryProperties summaryProperties;
+
+    private VendorSummaries vendorSummaries;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        summaryProperties = new SummaryProperties();
+        vendorSummaries = new VendorSummaries(reactiveMongoTemplate, summaryProperties);
+        given(reactiveMongoTemplate.upsert(any(Query.class), any(Update.class), eq(VendorSummaries.SUMMARY_COLLECTION)))
+                .willReturn(Mono.just(UpdateResult.acknowledged(1L, 1L, null)));
+    }
+
+    @Test
+    public void recordMovesTheVendorToItsNewKeys() {
+        givenRecordedKeys(new Document("_id", "2343sfs3")
+                .append(VendorSummaries.BY_INITIAL, "G")
+                .append(VendorSummaries.BY_CATEGORY, CATEGORY_ID.toHexString()));
+
+        StepVerifier.create(vendorSummaries.record("2343sfs3", Vendor.builder().lastName("tosh").categoryId(CATEGORY_ID).build()))
+                .verifyComplete();
+
+        assertEquals(increments("initial:G", -1L, "initial:T", 1L), captureIncrements(2));
+    }
+
+    @Test
+    public void recordingTheSameKeysAgainChangesNothing() {
+        givenRecordedKeys(new Document("_id", "2343sfs3").append(VendorSummaries.BY_INITIAL, "T"));
+
+        StepVerifier.create(vendorSummaries.record("2343sfs3", Vendor.builder().lastName("Tosh").build()))
+                .verifyComplete();
+
+        verify(reactiveMongoTemplate, never()).upsert(any(Query.class), any(Update.class), eq(VendorSummaries.SUMMARY_COLLECTION));
+    }
+
+    @Test
+    public void recordCountsANewVendorUnderEveryKey() {
+        givenRecordedKeys(null);
+
+        StepVerifier.create(vendorSummaries.record("2343sfs3", Vendor.builder().lastName("Posca").categoryId(CATEGORY_ID).build()))
+                .verifyComplete();
+
+        assertEquals(increments("initial:P", 1L, "category:" + CATEGORY_ID.toHexString(), 1L), captureIncrements(2));
+    }
+
+    @Test
+    public void countsAreReadByRangeWithoutTheZeros() {
+        given(reactiveMongoTemplate.find(any(Query.class), eq(Document.class), eq(VendorSummaries.SUMMARY_COLLECTION)))
+                .willReturn(Flux.just(new Document("_id", "initial:G").append(VendorSummaries.COUNT, 2),
+                        new Document("_id", "initial:T").append(VendorSummaries.COUNT, 0L)));
+
+        StepVerifier.create(vendorSummaries.counts(VendorSummaries.BY_INITIAL))
+                .expectNext(Collections.singletonMap("G", 2L))
+                .verifyComplete();
+
+        final ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(reactiveMongoTemplate).find(queryCaptor.capture(), eq(Document.class), eq(VendorSummaries.SUMMARY_COLLECTION));
+        assertEquals(new Document("$gte", "initial:").append("$lt", "initial;"), queryCaptor.getValue().getQueryObject().get("_id"));
+    }
+
+    @Test
+    public void writesAreNotRecordedWhenFollowingTheChangeStream() {
+        summaryProperties.setSource(SummaryProperties.Source.CHANGE_STREAM);
+
+        StepVerifier.create(vendorSummaries.written(Vendor.builder().id("2343sfs3").lastName("Posca").build()))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verifyZeroInteractions(reactiveMongoTemplate);
+    }
+
+    @Test
+    public void recordingInsertsReadsTheBatchBackAfterAPartialFailure() {
+        givenRecordedKeys(null);
+        final List<Vendor> vendors = Arrays.asList(Vendor.builder().lastName("Posca").build(),
+                Vendor.builder().id(new ObjectId().toHexString()).lastName("Tosh").build());
+        given(reactiveMongoTemplate.find(any(Query.class), eq(Vendor.class)))
+                .willAnswer(invocation -> Flux.just(vendors.get(1)));
+
+        StepVerifier.create(vendorSummaries.recording(batch -> Mono.just(1L)).apply(vendors))
+                .expectNext(1L)
+                .verifyComplete();
+
+        assertNotNull(vendors.get(0).getId());
+        verify(reactiveMongoTemplate).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(VendorSummaries.KEY_COLLECTION));
+    }
+
+    @Test
+    public void initialsIgnoreCaseAndLeadingBlanks() {
+        // an N with a tilde, escaped so the test compiles whatever the platform encoding
+        assertEquals("\u00D1", VendorSummaries.keys("  \u00F1and\u00FA", null).get(VendorSummaries.BY_INITIAL));
+        assertTrue(VendorSummaries.keys(" ", null).isEmpty());
+    }
+
+    private void givenRecordedKeys(Document previous) {
+        given(reactiveMongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(VendorSummaries.KEY_COLLECTION)))
+                .willReturn(previous == null ? Mono.empty() : Mono.just(previous));
+    }
+
+    private Map<Object, Object> captureIncrements(int count) {
+        final ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        final ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        verify(reactiveMongoTemplate, times(count)).upsert(queryCaptor.capture(), updateCaptor.capture(), eq(VendorSummaries.SUMMARY_COLLECTION));
+        final Map<Object, Object> increments = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            increments.put(queryCaptor.getAllValues().get(i).getQueryObject().get("_id"),
+                    updateCaptor.getAllValues().get(i).getUpdateObject().get("$inc", Document.class).get(VendorSummaries.COUNT));
+        }
+        return increments;
+    }
+
+    private static Map<Object, Object> increments(String firstId, long first, String secondId, long second) {
+        final Map<Object, Object> increments = new HashMap<>();
+        increments.put(firstId, first);
+        increments.put(secondId, second);
+        return increments;
+    }
+}